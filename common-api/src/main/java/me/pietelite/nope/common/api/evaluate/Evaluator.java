@@ -24,6 +24,8 @@
 
 package me.pietelite.nope.common.api.evaluate;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 import me.pietelite.nope.common.api.struct.AltSet;
 import org.jetbrains.annotations.Nullable;
@@ -203,4 +205,20 @@ public interface Evaluator {
    */
   <T> T unarySettingGlobal(String settingKey, @Nullable UUID player, Class<T> type);
 
+  /**
+   * Evaluate several Setting Keys at the given location for a specific player all at once,
+   * which is cheaper than evaluating each of them on its own.
+   * The results of (Poly) Setting Keys are {@link AltSet}s.
+   *
+   * @param settingKeys the setting keys
+   * @param x           the x location
+   * @param y           the y location
+   * @param z           the z location
+   * @param domain      the domain
+   * @param player      the uuid of the player for whom the values are intended
+   * @return the results of the evaluations, keyed by setting key
+   */
+  Map<String, Object> settings(Collection<String> settingKeys, float x, float y, float z, String domain,
+                               @Nullable UUID player);
+
 }
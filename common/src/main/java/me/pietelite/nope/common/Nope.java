@@ -83,4 +83,6 @@ public abstract class Nope {
 
   public abstract void scheduleAsyncIntervalTask(Runnable runnable, int interval, TimeUnit intervalUnit);
 
+  public abstract void scheduleAsyncTask(Runnable runnable);
+
 }
@@ -24,12 +24,17 @@
 
 package me.pietelite.nope.common.api;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.UUID;
 import me.pietelite.nope.common.Nope;
 import me.pietelite.nope.common.api.evaluate.Evaluator;
 import me.pietelite.nope.common.api.struct.AltSet;
 import me.pietelite.nope.common.host.Domain;
+import me.pietelite.nope.common.host.LookupResults;
+import me.pietelite.nope.common.setting.SettingKey;
 import me.pietelite.nope.common.struct.Location;
 import org.jetbrains.annotations.Nullable;
 
@@ -46,110 +51,122 @@ public class EvaluatorImpl implements Evaluator {
     return domain;
   }
 
+  /*
+   * Results are shared by all lookups, so callers of the API get their own copy,
+   * which they may change without changing any other result.
+   */
+  private static <X> X copiedResult(SettingKey<X, ?, ?> key, @Nullable UUID player, Location location) {
+    return key.manager().copyData(Nope.instance().system().lookupResult(key, player, location));
+  }
+
+  private static <X> X copiedBlockResult(SettingKey<X, ?, ?> key, @Nullable UUID player,
+                                         Domain domain, int x, int y, int z) {
+    return key.manager().copyData(Nope.instance().system().lookupBlockResult(key, player, domain, x, y, z));
+  }
+
+  private static <X> X copiedGlobalResult(SettingKey<X, ?, ?> key, @Nullable UUID player) {
+    return key.manager().copyData(Nope.instance().system().lookupGlobalResult(key, player));
+  }
+
+  private static <X> X copiedResult(SettingKey<X, ?, ?> key, LookupResults results) {
+    return key.manager().copyData(results.get(key));
+  }
+
   @Override
   public <T> AltSet<T> polySetting(String setting, float x, float y, float z,
                                    String domain, Class<T> type) {
-    return Nope.instance().system()
-        .lookup(Nope.instance().settingKeys().getPolySetting(setting, type),
+    return copiedResult(Nope.instance().settingKeys().getPolySetting(setting, type),
             null,
-            new Location(x, y, z, domain(domain)))
-        .result();
+            new Location(x, y, z, domain(domain)));
   }
 
   @Override
   public <T> AltSet<T> polySetting(String setting, float x, float y, float z,
                                    String domain, @Nullable UUID player, Class<T> type) {
-    return Nope.instance().system()
-        .lookup(Nope.instance().settingKeys().getPolySetting(setting, type),
+    return copiedResult(Nope.instance().settingKeys().getPolySetting(setting, type),
             player,
-            new Location(x, y, z, domain(domain)))
-        .result();
+            new Location(x, y, z, domain(domain)));
   }
 
 
   @Override
   public <T> AltSet<T> polySettingBlock(String setting, int x, int y, int z,
                                         String domain, Class<T> type) {
-    return Nope.instance().system()
-        .lookupBlock(Nope.instance().settingKeys().getPolySetting(setting, type),
+    return copiedBlockResult(Nope.instance().settingKeys().getPolySetting(setting, type),
             null,
-            domain(domain), x, y, z)
-        .result();
+            domain(domain), x, y, z);
   }
 
   @Override
   public <T> AltSet<T> polySettingBlock(String setting, int x, int y, int z,
                                         String domain, @Nullable UUID player, Class<T> type) {
-    return Nope.instance().system()
-        .lookupBlock(Nope.instance().settingKeys().getPolySetting(setting, type),
+    return copiedBlockResult(Nope.instance().settingKeys().getPolySetting(setting, type),
             player,
-            domain(domain), x, y, z)
-        .result();
+            domain(domain), x, y, z);
   }
 
   @Override
   public <T> AltSet<T> polySettingGlobal(String setting, Class<T> type) {
-    return Nope.instance().system()
-        .lookupGlobal(Nope.instance().settingKeys().getPolySetting(setting, type), null)
-        .result();
+    return copiedGlobalResult(Nope.instance().settingKeys().getPolySetting(setting, type), null);
   }
 
   @Override
   public <T> AltSet<T> polySettingGlobal(String setting, @Nullable UUID player, Class<T> type) {
-    return Nope.instance().system()
-        .lookupGlobal(Nope.instance().settingKeys().getPolySetting(setting, type), player)
-        .result();
+    return copiedGlobalResult(Nope.instance().settingKeys().getPolySetting(setting, type), player);
   }
 
   @Override
   public <T> T unarySetting(String setting, float x, float y, float z, String domain, Class<T> type) {
-    return Nope.instance().system()
-        .lookup(Nope.instance().settingKeys().getUnarySetting(setting, type),
+    return copiedResult(Nope.instance().settingKeys().getUnarySetting(setting, type),
             null,
-            new Location(x, y, z, domain(domain)))
-        .result();
+            new Location(x, y, z, domain(domain)));
   }
 
   @Override
   public <T> T unarySetting(String setting, float x, float y, float z,
                             String domain, @Nullable UUID player, Class<T> type) {
-    return Nope.instance().system()
-        .lookup(Nope.instance().settingKeys().getUnarySetting(setting, type),
+    return copiedResult(Nope.instance().settingKeys().getUnarySetting(setting, type),
             player,
-            new Location(x, y, z, domain(domain)))
-        .result();
+            new Location(x, y, z, domain(domain)));
   }
 
   @Override
   public <T> T unarySettingBlock(String setting, int x, int y, int z, String domain, Class<T> type) {
-    return Nope.instance().system()
-        .lookupBlock(Nope.instance().settingKeys().getUnarySetting(setting, type),
+    return copiedBlockResult(Nope.instance().settingKeys().getUnarySetting(setting, type),
             null,
-            domain(domain), x, y, z)
-        .result();
+            domain(domain), x, y, z);
   }
 
   @Override
   public <T> T unarySettingBlock(String setting, int x, int y, int z,
                                  String domain, @Nullable UUID player, Class<T> type) {
-    return Nope.instance().system()
-        .lookupBlock(Nope.instance().settingKeys().getUnarySetting(setting, type),
+    return copiedBlockResult(Nope.instance().settingKeys().getUnarySetting(setting, type),
             player,
-            domain(domain), x, y, z)
-        .result();
+            domain(domain), x, y, z);
   }
 
   @Override
   public <T> T unarySettingGlobal(String setting, Class<T> type) {
-    return Nope.instance().system()
-        .lookupGlobal(Nope.instance().settingKeys().getUnarySetting(setting, type), null)
-        .result();
+    return copiedGlobalResult(Nope.instance().settingKeys().getUnarySetting(setting, type), null);
   }
 
   @Override
   public <T> T unarySettingGlobal(String setting, @Nullable UUID player, Class<T> type) {
-    return Nope.instance().system()
-        .lookupGlobal(Nope.instance().settingKeys().getUnarySetting(setting, type), player)
-        .result();
+    return copiedGlobalResult(Nope.instance().settingKeys().getUnarySetting(setting, type), player);
+  }
+
+  @Override
+  public Map<String, Object> settings(Collection<String> settingKeys, float x, float y, float z,
+                                      String domain, @Nullable UUID player) {
+    SettingKey<?, ?, ?>[] keys = settingKeys.stream()
+        .map(Nope.instance().settingKeys()::get)
+        .toArray(SettingKey<?, ?, ?>[]::new);
+    LookupResults results = Nope.instance().system()
+        .lookupResults(player, new Location(x, y, z, domain(domain)), keys);
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (SettingKey<?, ?, ?> key : keys) {
+      map.put(key.id(), copiedResult(key, results));
+    }
+    return map;
   }
 }
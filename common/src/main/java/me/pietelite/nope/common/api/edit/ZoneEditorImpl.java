@@ -92,7 +92,7 @@ public class ZoneEditorImpl<V extends Volume> implements ZoneEditor {
 
   protected final void update(Volume newVolume) {
     verify();
-    volume.domain().volumes().remove(volume, false);
+    volume.domain().volumes().remove(volume, true);
     volume.copyUuidTo(newVolume);
     volume.domain().volumes().put(newVolume, scene, true);
     volume.expire();
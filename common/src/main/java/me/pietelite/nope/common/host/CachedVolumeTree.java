@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.host;
+
+import java.util.Objects;
+import lombok.Data;
+import me.pietelite.nope.common.math.Cuboid;
+import me.pietelite.nope.common.math.Volume;
+import me.pietelite.nope.common.struct.TinyLfuCache;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An extension of {@link VolumeTree} with cached queries to
+ * optimize lookup time.
+ *
+ * <p>Points are cached by their block, since most volumes contain either all or
+ * none of a block and then every point in the block gives the same result. Only
+ * points in blocks which some volume cuts through are cached individually.
+ *
+ * <p>The cache is bounded and only admits new queries over the ones it holds if they
+ * are requested more often, see {@link TinyLfuCache}. Adding or removing a volume only
+ * drops the cached queries within the volume's circumscribed cuboid, after the new tree
+ * is published, and a result computed from an outdated tree is never cached afterwards.
+ */
+public class CachedVolumeTree extends VolumeTree {
+
+  /**
+   * The cached result of a block which some volume only partly contains,
+   * so its points are cached individually instead.
+   */
+  private static final SceneSet MIXED = new SceneSet(new Scene[0]);
+
+  private final TinyLfuCache<Key, SceneSet> cache;
+
+  /**
+   * Generic constructor.
+   *
+   * @param size the maximum amount of queries to cache
+   */
+  public CachedVolumeTree(int size) {
+    super();
+    this.cache = new TinyLfuCache<>(size);
+  }
+
+  @NotNull
+  @Override
+  public SceneSet containing(float x, float y, float z) {
+    // Get the version before querying the tree, in case the tree changes in the meantime
+    long version = cache.version();
+    BlockQuery block = BlockQuery.of((int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z));
+    SceneSet scenes = cache.get(block);
+    if (scenes == null) {
+      scenes = containingUniformBlock(block.blockX, block.blockY, block.blockZ);
+      if (scenes == null) {
+        scenes = MIXED;
+      }
+      cache.put(block, scenes, version);
+    }
+    if (scenes != MIXED) {
+      return scenes;
+    }
+
+    // Some volume cuts through this block, so the point itself matters
+    Query query = Query.of(x, y, z);
+    scenes = cache.get(query);
+    if (scenes != null) {
+      return scenes;
+    }
+    scenes = super.containing(x, y, z);
+    cache.put(query, scenes, version);
+    return scenes;
+  }
+
+  @Override
+  public synchronized void put(Volume volume, Scene scene, boolean construct) {
+    super.put(volume, scene, construct);
+    invalidate(volume);
+  }
+
+  @Override
+  public synchronized Volume remove(Volume volume, boolean construct) {
+    Volume removed = super.remove(volume, construct);
+    if (removed != null) {
+      invalidate(removed);
+    }
+    return removed;
+  }
+
+  /**
+   * Drop the cached results of all queries which the volume may contain. Constructing the
+   * tree doesn't change the result of any query, so only adding and removing volumes do this.
+   */
+  private void invalidate(Volume volume) {
+    Cuboid bounds = volume.circumscribed();
+    cache.invalidate(key -> key.within(bounds));
+  }
+
+  /**
+   * Get the amount of queries answered from the cache.
+   *
+   * @return the hit count
+   */
+  public long cacheHits() {
+    return cache.hits();
+  }
+
+  /**
+   * Get the amount of queries which had to search the tree.
+   *
+   * @return the miss count
+   */
+  public long cacheMisses() {
+    return cache.misses();
+  }
+
+  /**
+   * Get the amount of cached queries which were evicted to keep the cache within its size.
+   *
+   * @return the eviction count
+   */
+  public long cacheEvictions() {
+    return cache.evictions();
+  }
+
+  /**
+   * A key of the cache.
+   */
+  private interface Key {
+
+    /**
+     * Whether any point of this query lies within the bounds.
+     *
+     * @param bounds the bounds, inclusive on all sides
+     * @return true if the query may be affected by a volume with these bounds
+     */
+    boolean within(Cuboid bounds);
+  }
+
+  @Data(staticConstructor = "of")
+  private static class BlockQuery implements Key {
+    private final int blockX;
+    private final int blockY;
+    private final int blockZ;
+
+    @Override
+    public boolean within(Cuboid bounds) {
+      return blockX <= bounds.maxX() && blockX + 1 > bounds.minX()
+          && blockY <= bounds.maxY() && blockY + 1 > bounds.minY()
+          && blockZ <= bounds.maxZ() && blockZ + 1 > bounds.minZ();
+    }
+  }
+
+  @Data(staticConstructor = "of")
+  private static class Query implements Key {
+    private final float posX;
+    private final float posY;
+    private final float posZ;
+
+    @Override
+    public boolean equals(Object other) {
+      if (other == null || getClass() != other.getClass()) {
+        return false;
+      }
+
+      return (this.posX == ((Query) other).posX)
+          && (this.posY == ((Query) other).posY)
+          && (this.posZ == ((Query) other).posZ);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(posX, posY, posZ);
+    }
+
+    @Override
+    public boolean within(Cuboid bounds) {
+      return posX >= bounds.minX() && posX <= bounds.maxX()
+          && posY >= bounds.minY() && posY <= bounds.maxY()
+          && posZ >= bounds.minZ() && posZ <= bounds.maxZ();
+    }
+
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.host;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import me.pietelite.nope.common.math.Cuboid;
+import me.pietelite.nope.common.math.Volume;
+
+/**
+ * An index of the scenes containing the blocks of each 16x16x16 chunk section
+ * of a {@link VolumeTree}, which answers most block lookups with a single hash probe.
+ *
+ * <p>Sections are indexed lazily as blocks in them are looked up. Every volume which
+ * contains a whole section contributes its scene to the section outright, and only
+ * the few volumes which cut through the section are checked for each block.
+ * A modification of the tree drops every indexed section which the modified
+ * volume may overlap.
+ */
+final class ChunkSectionIndex {
+
+  private static final int SECTION_BITS = 4;
+  private static final int SECTION_SIZE = 1 << SECTION_BITS;
+  // Horizontal sections reach past the world border, vertical sections need far fewer bits
+  private static final int HORIZONTAL_BITS = 26;
+  private static final int VERTICAL_BITS = 64 - 2 * HORIZONTAL_BITS;
+  private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+  private static final long VERTICAL_MASK = (1L << VERTICAL_BITS) - 1;
+
+  private final VolumeTree tree;
+  private final int capacity;
+  private final Map<Long, Section> sections = new ConcurrentHashMap<>();
+  private final AtomicLong version = new AtomicLong();
+
+  /**
+   * Generic constructor.
+   *
+   * @param tree     the tree to index
+   * @param capacity the amount of sections to hold before the index is emptied
+   */
+  ChunkSectionIndex(VolumeTree tree, int capacity) {
+    this.tree = tree;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Get the scenes which contain the given block. This gives the same result
+   * as {@link VolumeTree#containingBlock(int, int, int)} without the index.
+   *
+   * @param x the block x coordinate
+   * @param y the block y coordinate
+   * @param z the block z coordinate
+   * @return the scenes, which must not be modified
+   */
+  Set<Scene> containingBlock(int x, int y, int z) {
+    int sectionX = x >> SECTION_BITS;
+    int sectionY = y >> SECTION_BITS;
+    int sectionZ = z >> SECTION_BITS;
+    long key = ((sectionX & HORIZONTAL_MASK) << (HORIZONTAL_BITS + VERTICAL_BITS))
+        | ((sectionY & VERTICAL_MASK) << HORIZONTAL_BITS)
+        | (sectionZ & HORIZONTAL_MASK);
+    Section section = sections.get(key);
+    if (section != null && !section.isAt(sectionX, sectionY, sectionZ)) {
+      // Sections this far out share keys, so answer without indexing
+      return new Section(sectionX << SECTION_BITS, sectionY << SECTION_BITS, sectionZ << SECTION_BITS)
+          .containingBlock(x, y, z);
+    }
+    if (section == null) {
+      long observed = version.get();
+      section = new Section(sectionX << SECTION_BITS, sectionY << SECTION_BITS, sectionZ << SECTION_BITS);
+      if (sections.size() >= capacity) {
+        sections.clear();
+      }
+      sections.put(key, section);
+      // The tree was modified while we indexed the section, so it may already be outdated
+      if (version.get() != observed) {
+        sections.remove(key, section);
+      }
+    }
+    return section.containingBlock(x, y, z);
+  }
+
+  /**
+   * Drop all sections which the given volume may overlap.
+   * This must be called after the volume has been added to or removed from the tree.
+   *
+   * @param volume the volume
+   */
+  void invalidate(Volume volume) {
+    version.incrementAndGet();
+    Cuboid bounds = volume.circumscribed();
+    sections.values().removeIf(section -> section.overlaps(bounds));
+  }
+
+  /**
+   * Drop all sections.
+   */
+  void clear() {
+    version.incrementAndGet();
+    sections.clear();
+  }
+
+  private final class Section {
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final Set<Scene> covering;
+    private final List<Volume> cuttingVolumes = new ArrayList<>();
+    private final List<Scene> cuttingScenes = new ArrayList<>();
+
+    private Section(int minX, int minY, int minZ) {
+      this.minX = minX;
+      this.minY = minY;
+      this.minZ = minZ;
+      Set<Scene> covering = new HashSet<>();
+      for (Map.Entry<Volume, Scene> entry : tree.overlapping(minX, minY, minZ,
+          minX + SECTION_SIZE, minY + SECTION_SIZE, minZ + SECTION_SIZE).entrySet()) {
+        if (entry.getKey().containsCuboid(minX, minY, minZ,
+            minX + SECTION_SIZE, minY + SECTION_SIZE, minZ + SECTION_SIZE, true)) {
+          covering.add(entry.getValue());
+        } else {
+          cuttingVolumes.add(entry.getKey());
+          cuttingScenes.add(entry.getValue());
+        }
+      }
+      this.covering = Collections.unmodifiableSet(covering);
+    }
+
+    private Set<Scene> containingBlock(int x, int y, int z) {
+      if (cuttingVolumes.isEmpty()) {
+        return covering;
+      }
+      Set<Scene> scenes = new HashSet<>(covering);
+      for (int i = 0; i < cuttingVolumes.size(); i++) {
+        if (cuttingVolumes.get(i).containsCuboid(x, y, z, x + 1, y + 1, z + 1, true)) {
+          scenes.add(cuttingScenes.get(i));
+        }
+      }
+      return scenes;
+    }
+
+    private boolean isAt(int sectionX, int sectionY, int sectionZ) {
+      return minX == sectionX << SECTION_BITS
+          && minY == sectionY << SECTION_BITS
+          && minZ == sectionZ << SECTION_BITS;
+    }
+
+    private boolean overlaps(Cuboid bounds) {
+      return bounds.minX() <= minX + SECTION_SIZE && bounds.maxX() >= minX
+          && bounds.minY() <= minY + SECTION_SIZE && bounds.maxY() >= minY
+          && bounds.minZ() <= minZ + SECTION_SIZE && bounds.maxZ() >= minZ;
+    }
+  }
+
+}
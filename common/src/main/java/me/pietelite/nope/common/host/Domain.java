@@ -24,7 +24,6 @@
 
 package me.pietelite.nope.common.host;
 
-import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import me.pietelite.nope.common.Nope;
@@ -43,7 +42,7 @@ public class Domain extends Host implements Domained {
    * Generic constructor.
    *
    * @param name      the name of the domain
-   * @param cacheSize the amount of grid cells for which to cache data
+   * @param cacheSize the amount of queries for which to cache results
    */
   public Domain(String name, int cacheSize) {
     super(name, -1);
@@ -52,10 +51,9 @@ public class Domain extends Host implements Domained {
     } else if (cacheSize == 0) {
       this.volumes = new VolumeTree(true);
     } else {
-      FlexibleHashQueueVolumeTree flexVolumeTree = new FlexibleHashQueueVolumeTree(cacheSize);
-      Nope.instance().scheduleAsyncIntervalTask(flexVolumeTree::trim, 1, TimeUnit.SECONDS);
-      this.volumes = flexVolumeTree;
+      this.volumes = new CachedVolumeTree(cacheSize);
     }
+    this.volumes.executor(Nope.instance()::scheduleAsyncTask);
   }
 
   @Override
@@ -65,6 +63,7 @@ public class Domain extends Host implements Domained {
 
   @Override
   public void save() {
+    Nope.instance().system().invalidateEvaluations();
     Nope.instance().data().domains().save(this);
   }
 
@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.host;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import me.pietelite.nope.common.math.Cuboid;
+import me.pietelite.nope.common.math.Volume;
+
+/**
+ * A read-only copy of a {@link VolumeTree} with its nodes laid out in primitive arrays
+ * and the volumes of all its leaves laid out one after another. Searching it follows
+ * array indices instead of references between node objects and allocates nothing
+ * besides the resulting set.
+ */
+final class FlattenedVolumeTree {
+
+  // The type of a dividing node is its dimension's ordinal times two plus its comparison's ordinal
+  private static final byte MIN_X = 0;
+  private static final byte MAX_X = 1;
+  private static final byte MIN_Y = 2;
+  private static final byte MAX_Y = 3;
+  private static final byte MIN_Z = 4;
+  private static final byte MAX_Z = 5;
+  private static final byte LEAF = 6;
+
+  private final byte[] types;
+  private final float[] dividers;
+  // The left child of a dividing node, or the index of the first entry of a leaf
+  private final int[] lefts;
+  // The right child of a dividing node, or the index after the last entry of a leaf
+  private final int[] rights;
+
+  private final Volume[] volumes;
+  private final Scene[] scenes;
+  // The circumscribed bounds of every entry: minX, minY, minZ, maxX, maxY, maxZ
+  private final float[] bounds;
+
+  private int nodeCount = 0;
+  private int entryCount = 0;
+
+  private FlattenedVolumeTree(VolumeTree.Node root) {
+    int nodes = 2 * root.size() + 1;
+    int entries = root.entries();
+    types = new byte[nodes];
+    dividers = new float[nodes];
+    lefts = new int[nodes];
+    rights = new int[nodes];
+    volumes = new Volume[entries];
+    scenes = new Scene[entries];
+    bounds = new float[entries * 6];
+    add(root);
+  }
+
+  /**
+   * Flatten the tree under the given node.
+   *
+   * @param root the root of the tree
+   * @return the flattened tree
+   */
+  static FlattenedVolumeTree of(VolumeTree.Node root) {
+    return new FlattenedVolumeTree(root);
+  }
+
+  private int add(VolumeTree.Node node) {
+    int index = nodeCount++;
+    if (node instanceof VolumeTree.DimensionDivider) {
+      VolumeTree.DimensionDivider divider = (VolumeTree.DimensionDivider) node;
+      types[index] = (byte) (divider.dimension().ordinal() * 2 + divider.comparison().ordinal());
+      dividers[index] = divider.divider;
+      int left = add(divider.left);
+      int right = add(divider.right);
+      lefts[index] = left;
+      rights[index] = right;
+      return index;
+    }
+    types[index] = LEAF;
+    lefts[index] = entryCount;
+    if (node instanceof VolumeTree.ViabilityLeaf) {
+      for (Map.Entry<Volume, Scene> entry : ((VolumeTree.ViabilityLeaf) node).viable.entrySet()) {
+        Cuboid circumscribed = entry.getKey().circumscribed();
+        int offset = entryCount * 6;
+        bounds[offset] = circumscribed.minX();
+        bounds[offset + 1] = circumscribed.minY();
+        bounds[offset + 2] = circumscribed.minZ();
+        bounds[offset + 3] = circumscribed.maxX();
+        bounds[offset + 4] = circumscribed.maxY();
+        bounds[offset + 5] = circumscribed.maxZ();
+        volumes[entryCount] = entry.getKey();
+        scenes[entryCount] = entry.getValue();
+        entryCount++;
+      }
+    }
+    rights[index] = entryCount;
+    return index;
+  }
+
+  /**
+   * Get all scenes with volumes which contain the given cuboid.
+   * This gives the same result as {@link VolumeTree.Node#findScenes}
+   * on the node from which this tree was flattened.
+   *
+   * @param minX         the minimum X value
+   * @param minY         the minimum Y value
+   * @param minZ         the minimum Z value
+   * @param maxX         the maximum X value
+   * @param maxY         the maximum Y value
+   * @param maxZ         the maximum Z value
+   * @param maxInclusive whether the maximum boundaries are inclusive
+   * @param excluded     volumes to ignore
+   * @return the scenes
+   */
+  Set<Scene> findScenes(float minX, float minY, float minZ,
+                        float maxX, float maxY, float maxZ,
+                        boolean maxInclusive,
+                        Set<Volume> excluded) {
+    int node = 0;
+    byte type;
+    while ((type = types[node]) != LEAF) {
+      float divider = dividers[node];
+      boolean left;
+      switch (type) {
+        case MIN_X:
+          left = maxX < divider || (maxInclusive && maxX == divider);
+          break;
+        case MAX_X:
+          left = minX <= divider;
+          break;
+        case MIN_Y:
+          left = maxY < divider || (maxInclusive && maxY == divider);
+          break;
+        case MAX_Y:
+          left = minY <= divider;
+          break;
+        case MIN_Z:
+          left = maxZ < divider || (maxInclusive && maxZ == divider);
+          break;
+        case MAX_Z:
+          left = minZ <= divider;
+          break;
+        default:
+          throw new IllegalStateException("Unknown node type " + type);
+      }
+      node = left ? lefts[node] : rights[node];
+    }
+
+    Set<Scene> found = new HashSet<>();
+    boolean checkExcluded = !excluded.isEmpty();
+    for (int entry = lefts[node]; entry < rights[node]; entry++) {
+      int offset = entry * 6;
+      // A volume can only contain what its circumscribed cuboid contains
+      if (minX < bounds[offset] || minY < bounds[offset + 1] || minZ < bounds[offset + 2]
+          || maxX > bounds[offset + 3] || maxY > bounds[offset + 4] || maxZ > bounds[offset + 5]) {
+        continue;
+      }
+      if (checkExcluded && excluded.contains(volumes[entry])) {
+        continue;
+      }
+      if (VolumeTree.ViabilityLeaf.contains(volumes[entry],
+          minX, minY, minZ, maxX, maxY, maxZ, maxInclusive)) {
+        found.add(scenes[entry]);
+      }
+    }
+    return found;
+  }
+
+}
@@ -46,6 +46,7 @@ public class Global extends Host {
   }
 
   public void save() {
+    Nope.instance().system().invalidateEvaluations();
     Nope.instance().data().universe().save(this);
   }
 
@@ -25,6 +25,7 @@
 package me.pietelite.nope.common.host;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -52,6 +53,7 @@ public abstract class Host implements Container, Named, Persistent, Expirable {
   protected String name;
   protected int priority;
   private boolean expired = false;
+  private volatile SetKeys setKeys;
 
   /**
    * Default constructor.
@@ -101,8 +103,37 @@ public abstract class Host implements Container, Named, Persistent, Expirable {
     return hostedProfiles();
   }
 
+  /**
+   * Check if any profile on this host sets the key.
+   *
+   * @param key the key
+   * @return true if set
+   */
   public boolean isSet(SettingKey<?, ?, ?> key) {
-    return allProfiles().stream().anyMatch(profileItem -> profileItem.profile().isSet(key));
+    if (key.ordinal() < 0) {
+      return allProfiles().stream().anyMatch(profileItem -> profileItem.profile().isSet(key));
+    }
+    return setKeys().get(key.ordinal());
+  }
+
+  /**
+   * Get the {@link SettingKey#ordinal()}s of the keys set by the profiles, which are
+   * gathered again whenever the {@link HostSystem#epoch()} changes. The bits must not be modified.
+   *
+   * @return the bits of the set keys
+   */
+  BitSet setKeys() {
+    long epoch = Nope.instance().system().epoch();
+    SetKeys current = setKeys;
+    if (current == null || current.epoch != epoch) {
+      BitSet bits = new BitSet();
+      for (HostedProfile hostedProfile : allProfiles()) {
+        hostedProfile.profile().markKeys(bits);
+      }
+      current = new SetKeys(epoch, bits);
+      setKeys = current;
+    }
+    return current.bits;
   }
 
   @Override
@@ -127,6 +158,19 @@ public abstract class Host implements Container, Named, Persistent, Expirable {
     return name;
   }
 
+  /**
+   * The keys set by the profiles of a host at some epoch.
+   */
+  private static final class SetKeys {
+    private final long epoch;
+    private final BitSet bits;
+
+    private SetKeys(long epoch, BitSet bits) {
+      this.epoch = epoch;
+      this.bits = bits;
+    }
+  }
+
   /**
    * Public editor for a {@link Host}.
    */
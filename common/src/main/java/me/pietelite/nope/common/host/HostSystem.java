@@ -25,7 +25,8 @@
 package me.pietelite.nope.common.host;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -34,14 +35,18 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import me.pietelite.nope.common.Nope;
 import me.pietelite.nope.common.api.edit.HostEditor;
 import me.pietelite.nope.common.api.edit.ScopeEditor;
 import me.pietelite.nope.common.api.edit.SystemEditor;
 import me.pietelite.nope.common.math.Volume;
+import me.pietelite.nope.common.setting.EvaluationPlan;
 import me.pietelite.nope.common.setting.SettingKey;
 import me.pietelite.nope.common.struct.IgnoreCaseStringHashMap;
 import me.pietelite.nope.common.struct.Location;
+import me.pietelite.nope.common.struct.TinyLfuCache;
 import me.pietelite.nope.common.util.Validate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -51,10 +56,40 @@ import org.jetbrains.annotations.Nullable;
  */
 public class HostSystem {
 
+  /**
+   * The amount of tracked things, like entities, for which to remember the region they're in.
+   */
+  static final int TRACKED_CAPACITY = 4096;
+
+  /**
+   * The amount of anonymous evaluations to remember, so repeated lookups don't have to be
+   * evaluated again. Evaluations for users are never remembered, because they depend on
+   * permissions, which may change at any time.
+   */
+  static final int EVALUATION_CAPACITY = 16384;
+
+  /**
+   * The amount of compiled evaluation plans to remember, which are shared by all users.
+   */
+  static final int PLAN_CAPACITY = 4096;
+
+  /**
+   * Stands in for a remembered result which is null.
+   */
+  private static final Object NULL_RESULT = new Object();
+
   private final IgnoreCaseStringHashMap<Domain> domains = new IgnoreCaseStringHashMap<>();
   private final IgnoreCaseStringHashMap<Scope> scopes = new IgnoreCaseStringHashMap<>();
+  private final TinyLfuCache<UUID, TrackedRegion> trackedRegions = new TinyLfuCache<>(TRACKED_CAPACITY);
+  private final TinyLfuCache<EvaluationKey, Evaluation<?>> evaluations =
+      new TinyLfuCache<>(EVALUATION_CAPACITY);
+  private final TinyLfuCache<EvaluationKey, Object> results = new TinyLfuCache<>(EVALUATION_CAPACITY);
+  private final TinyLfuCache<EvaluationKey, EvaluationPlan<?>> plans = new TinyLfuCache<>(PLAN_CAPACITY);
+
+  private final AtomicLong epoch = new AtomicLong();
 
   private Global global;
+  private volatile KeyIndex keyIndex;
 
   public HostSystem() {
     scopes.put(Nope.NOPE_SCOPE, new Scope(Nope.NOPE_SCOPE));
@@ -66,6 +101,7 @@ public class HostSystem {
 
   public void global(Global global) {
     this.global = global;
+    invalidateEvaluations();
   }
 
   public IgnoreCaseStringHashMap<Domain> domains() {
@@ -153,7 +189,7 @@ public class HostSystem {
     for (Volume oldVolume : scene.volumes()) {
       if (oldVolume.uuid().equals(volume.uuid())) {
         assert oldVolume.domain() == volume.domain();
-        volume.domain().volumes().remove(oldVolume, false);
+        volume.domain().volumes().remove(oldVolume, true);
       } else {
         newVolumes.add(oldVolume);
       }
@@ -179,13 +215,75 @@ public class HostSystem {
     set.add(location.domain());
 
     // Add all the containing scenes and their parents
-    Set<Scene> scenes = location.domain()
+    SceneSet scenes = location.domain()
         .volumes()
         .containing(location.posX(), location.posY(), location.posZ());
     set.addAll(scenes);
     return set;
   }
 
+  /**
+   * Get all the hosts "superior" at the location of something which is tracked as it
+   * moves around, like an entity. Each tracked thing remembers a box around its last
+   * location in which the containing scenes can't change, so as long as it stays
+   * within that box, the volumes don't have to be searched again.
+   *
+   * @param location the location for which to find superior hosts
+   * @param tracked  the id of the tracked thing
+   * @return the superior hosts
+   */
+  @NotNull
+  public Set<Host> containingHosts(@NotNull Location location, @NotNull UUID tracked) {
+    Set<Host> set = new HashSet<>(trackedScenes(location, tracked));
+    set.add(global);
+    set.add(location.domain());
+    return set;
+  }
+
+  /**
+   * Get the scenes at the location of something tracked as it moves around,
+   * searching the volumes only if it left the box around its last location.
+   */
+  private SceneSet trackedScenes(@NotNull Location location, @NotNull UUID tracked) {
+    Domain domain = location.domain();
+    float x = location.posX();
+    float y = location.posY();
+    float z = location.posZ();
+    TrackedRegion region = trackedRegions.get(tracked);
+    if (region == null || !region.contains(domain, x, y, z)) {
+      long cacheVersion = trackedRegions.version();
+      long treeVersion = domain.volumes().version();
+      float[] safeBox = new float[6];
+      SceneSet scenes = domain.volumes().containing(x, y, z, safeBox);
+      region = new TrackedRegion(domain, treeVersion, safeBox, scenes);
+      trackedRegions.put(tracked, region, cacheVersion);
+    }
+    return region.scenes;
+  }
+
+  /**
+   * Get the epoch of the hosts and their profiles, which changes every time remembered
+   * evaluations are invalidated.
+   *
+   * @return the epoch
+   */
+  public long epoch() {
+    return epoch.get();
+  }
+
+  /**
+   * Forget all remembered evaluations. This must be called whenever something changes
+   * which may change the result of an evaluation, like an edit to a {@link Host},
+   * a {@link Profile}, or a {@link me.pietelite.nope.common.setting.Target}.
+   */
+  public void invalidateEvaluations() {
+    epoch.incrementAndGet();
+    // Plans go first, so no result may be remembered again from a plan being forgotten
+    plans.clear();
+    results.clear();
+    evaluations.clear();
+  }
+
   /**
    * Determine if the key is assigned to any host.
    *
@@ -193,9 +291,51 @@ public class HostSystem {
    * @return true if a host has it assigned anywhere
    */
   public boolean isAssigned(SettingKey<?, ?, ?> key) {
-    return hosts().stream().anyMatch(host ->
-        host.hostedProfiles().stream().anyMatch(profileItem ->
-            profileItem.profile().get(key).isPresent()));
+    return !hostsSetting(key).isEmpty();
+  }
+
+  /**
+   * Get all hosts with a profile which sets the key.
+   *
+   * @param key the key
+   * @return the hosts, which must not be modified
+   */
+  @NotNull
+  public List<Host> hostsSetting(SettingKey<?, ?, ?> key) {
+    if (key.ordinal() < 0) {
+      return hosts().stream().filter(host -> host.isSet(key)).collect(Collectors.toList());
+    }
+    List<List<Host>> hosts = keyIndex().hosts;
+    if (key.ordinal() >= hosts.size()) {
+      return Collections.emptyList();
+    }
+    return hosts.get(key.ordinal());
+  }
+
+  /**
+   * Get the hosts setting each key, which are gathered again whenever the {@link #epoch()} changes.
+   */
+  private KeyIndex keyIndex() {
+    long epoch = epoch();
+    KeyIndex current = keyIndex;
+    if (current == null || current.epoch != epoch) {
+      List<List<Host>> hosts = new ArrayList<>();
+      for (Host host : hosts()) {
+        BitSet keys = host.setKeys();
+        for (int ordinal = keys.nextSetBit(0); ordinal >= 0; ordinal = keys.nextSetBit(ordinal + 1)) {
+          while (hosts.size() <= ordinal) {
+            hosts.add(Collections.emptyList());
+          }
+          if (hosts.get(ordinal).isEmpty()) {
+            hosts.set(ordinal, new ArrayList<>(1));
+          }
+          hosts.get(ordinal).add(host);
+        }
+      }
+      current = new KeyIndex(epoch, hosts);
+      keyIndex = current;
+    }
+    return current;
   }
 
   /**
@@ -230,8 +370,14 @@ public class HostSystem {
       volume.domain().volumes().put(volume, scene, false);
       domains.add(volume.domain());
     }));
-    // Construct all volume trees that were affected
-    domains.forEach(domain -> domain.volumes().construct());
+    // Use the saved volume trees which are still up to date, and construct the rest.
+    // Queries are answered by a tree, not by checking every volume, even before it completes
+    domains.forEach(domain -> {
+      if (!Nope.instance().data().domains().loadVolumes(domain)) {
+        domain.volumes().constructAsync().thenRun(() -> Nope.instance().data().domains().saveVolumes(domain));
+      }
+    });
+    invalidateEvaluations();
   }
 
 
@@ -243,6 +389,7 @@ public class HostSystem {
   /**
    * Evaluate the result of a setting key for a specific user at a given location.
    * This method is the meat and potatoes of the plugin.
+   * The evaluation may be shared with other callers, so it must not be modified.
    *
    * @param key      the key
    * @param userUuid the user's uuid
@@ -253,7 +400,7 @@ public class HostSystem {
   public <X> Evaluation<X> lookup(@NotNull final SettingKey<X, ?, ?> key,
                                   @Nullable final UUID userUuid,
                                   @NotNull final Location location) {
-    Set<Scene> containingScenes = location.domain()
+    SceneSet containingScenes = location.domain()
         .volumes()
         .containing(location.posX(),
             location.posY(),
@@ -262,24 +409,163 @@ public class HostSystem {
     return lookup(key, userUuid, location.domain(), containingScenes);
   }
 
-  private <X> Evaluation<X> lookup(SettingKey<X, ?, ?> key, UUID userUuid, Domain domain, Set<Scene> scenes) {
-    ArrayList<Host> hosts = new ArrayList<>(scenes.size() + 2);
+  @SuppressWarnings("unchecked")
+  private <X> Evaluation<X> lookup(SettingKey<X, ?, ?> key, UUID userUuid,
+                                   @Nullable Domain domain, SceneSet scenes) {
+    if (userUuid != null) {
+      // Permissions may change at any time, so the targets are tested every time
+      return plan(key, domain, scenes).evaluate(userUuid);
+    }
+    EvaluationKey evaluationKey = new EvaluationKey(key, domain, scenes);
+    Evaluation<X> evaluation = (Evaluation<X>) evaluations.get(evaluationKey);
+    if (evaluation == null) {
+      long epoch = evaluations.version();
+      evaluation = plan(key, domain, scenes).evaluate(null);
+      evaluations.put(evaluationKey, evaluation, epoch);
+    }
+    return evaluation;
+  }
 
-    hosts.addAll(scenes);
+  /**
+   * Evaluate only the result of a setting key for a specific user at a given location,
+   * like {@link #lookup(SettingKey, UUID, Location)}, but without keeping a record
+   * of the evaluation process. Use this unless the record is really needed.
+   * The result may be shared with other callers, so it must not be modified.
+   *
+   * @param key      the key
+   * @param userUuid the user's uuid
+   * @param location the location
+   * @param <X>      the type of data to return
+   * @return the result
+   */
+  public <X> X lookupResult(@NotNull final SettingKey<X, ?, ?> key,
+                            @Nullable final UUID userUuid,
+                            @NotNull final Location location) {
+    SceneSet containingScenes = location.domain()
+        .volumes()
+        .containing(location.posX(),
+            location.posY(),
+            location.posZ());
+
+    return lookupResult(key, userUuid, location.domain(), containingScenes);
+  }
+
+  /**
+   * Evaluate only the results of several setting keys for a specific user at a given location,
+   * like {@link #lookupResult(SettingKey, UUID, Location)} for each key, but only finding
+   * the scenes at the location once. Use this when a few keys are needed at the same place.
+   *
+   * @param userUuid the user's uuid
+   * @param location the location
+   * @param keys     the keys
+   * @return the results
+   */
+  public LookupResults lookupResults(@Nullable final UUID userUuid,
+                                     @NotNull final Location location,
+                                     @NotNull final SettingKey<?, ?, ?>... keys) {
+    SceneSet containingScenes = location.domain()
+        .volumes()
+        .containing(location.posX(),
+            location.posY(),
+            location.posZ());
+
+    return lookupResults(userUuid, location.domain(), containingScenes, keys);
+  }
+
+  /**
+   * Evaluate only the results of several setting keys for a specific user at the location
+   * of something which is tracked as it moves around, like {@link #lookupResults(UUID, Location,
+   * SettingKey[])}, but finding the scenes like {@link #containingHosts(Location, UUID)}.
+   * Use this for the locations of moving entities.
+   *
+   * @param userUuid the user's uuid
+   * @param location the location
+   * @param tracked  the id of the tracked thing
+   * @param keys     the keys
+   * @return the results
+   */
+  public LookupResults lookupResults(@Nullable final UUID userUuid,
+                                     @NotNull final Location location,
+                                     @NotNull final UUID tracked,
+                                     @NotNull final SettingKey<?, ?, ?>... keys) {
+    return lookupResults(userUuid, location.domain(), trackedScenes(location, tracked), keys);
+  }
+
+  private LookupResults lookupResults(UUID userUuid, Domain domain, SceneSet scenes,
+                                      SettingKey<?, ?, ?>[] keys) {
+    Object[] values = new Object[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      values[i] = lookupResult(keys[i], userUuid, domain, scenes);
+    }
+    return new LookupResults(keys.clone(), values);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <X> X lookupResult(SettingKey<X, ?, ?> key, UUID userUuid,
+                             @Nullable Domain domain, SceneSet scenes) {
+    if (userUuid != null) {
+      // Permissions may change at any time, so the targets are tested every time
+      return plan(key, domain, scenes).result(userUuid);
+    }
+    EvaluationKey evaluationKey = new EvaluationKey(key, domain, scenes);
+    Object result = results.get(evaluationKey);
+    if (result == null) {
+      long version = results.version();
+      result = plan(key, domain, scenes).result(null);
+      results.put(evaluationKey, result == null ? NULL_RESULT : result, version);
+    }
+    return result == NULL_RESULT ? null : (X) result;
+  }
+
+  /**
+   * Get the compiled plan for evaluating a key in the given domain and scenes, for any user.
+   */
+  @SuppressWarnings("unchecked")
+  private <X> EvaluationPlan<X> plan(SettingKey<X, ?, ?> key, @Nullable Domain domain, SceneSet scenes) {
+    EvaluationKey planKey = new EvaluationKey(key, domain, scenes);
+    EvaluationPlan<X> plan = (EvaluationPlan<X>) plans.get(planKey);
+    if (plan == null) {
+      long version = plans.version();
+      plan = key.compile(contributingHosts(key, domain, scenes));
+      plans.put(planKey, plan, version);
+    }
+    return plan;
+  }
+
+  /**
+   * Get the hosts which may contribute to the value of a key, in order of priority.
+   */
+  private List<Host> contributingHosts(SettingKey<?, ?, ?> key, @Nullable Domain domain, SceneSet scenes) {
+    // the scenes are already in order of priority, and those without the key don't matter
+    ArrayList<Host> hosts = new ArrayList<>(scenes.size() + 2);
+    for (Scene scene : scenes.sorted()) {
+      if (scene.isSet(key)) {
+        hosts.add(scene);
+      }
+    }
 
     // add global
     if (global.isSet(key)) {
-      hosts.add(global);
+      insertByPriority(hosts, global);
     }
 
     // add domain
-    if (domain.isSet(key)) {
-      hosts.add(domain);
+    if (domain != null && domain.isSet(key)) {
+      insertByPriority(hosts, domain);
     }
 
-    hosts.sort(Comparator.comparing(Host::priority));
+    return hosts;
+  }
 
-    return key.extractValue(hosts, userUuid);
+  /**
+   * Insert a host into a list sorted by priority, after all the hosts of the same priority.
+   */
+  private static void insertByPriority(List<Host> hosts, Host host) {
+    int index = hosts.size();
+    while (index > 0 && hosts.get(index - 1).priority() > host.priority()) {
+      index--;
+    }
+    hosts.add(index, host);
   }
 
   /**
@@ -297,10 +583,30 @@ public class HostSystem {
   public <X> Evaluation<X> lookupBlock(@NotNull final SettingKey<X, ?, ?> key,
                                        @Nullable final UUID userUuid,
                                        Domain domain, int x, int y, int z) {
-    Set<Scene> containingScenes = domain.volumes().containingBlock(x, y, z);
+    SceneSet containingScenes = domain.volumes().containingBlock(x, y, z);
     return lookup(key, userUuid, domain, containingScenes);
   }
 
+  /**
+   * Evaluate only the result of a setting key for a specific user at a given block location,
+   * like {@link #lookupBlock(SettingKey, UUID, Domain, int, int, int)}.
+   *
+   * @param key      the key
+   * @param userUuid the user's uuid
+   * @param domain   the domain
+   * @param x        the block x coordinate
+   * @param y        the block y coordinate
+   * @param z        the block z coordinate
+   * @param <X>      the type of data to return
+   * @return the result
+   */
+  public <X> X lookupBlockResult(@NotNull final SettingKey<X, ?, ?> key,
+                                 @Nullable final UUID userUuid,
+                                 Domain domain, int x, int y, int z) {
+    SceneSet containingScenes = domain.volumes().containingBlock(x, y, z);
+    return lookupResult(key, userUuid, domain, containingScenes);
+  }
+
   /**
    * Evaluates a setting key, only considering the Global Host.
    *
@@ -311,15 +617,98 @@ public class HostSystem {
    */
   public <X> Evaluation<X> lookupGlobal(@NotNull final SettingKey<X, ?, ?> key,
                                         @Nullable final UUID userUuid) {
+    return lookup(key, userUuid, null, SceneSet.EMPTY);
+  }
+
+  /**
+   * Evaluates only the result of a setting key, only considering the Global Host,
+   * like {@link #lookupGlobal(SettingKey, UUID)}.
+   *
+   * @param key      the setting key
+   * @param userUuid the uuid of the user
+   * @param <X>      the result type
+   * @return the result
+   */
+  public <X> X lookupGlobalResult(@NotNull final SettingKey<X, ?, ?> key,
+                                  @Nullable final UUID userUuid) {
+    return lookupResult(key, userUuid, null, SceneSet.EMPTY);
+  }
 
-    ArrayList<Host> hosts = new ArrayList<>(1);
+  /**
+   * The hosts setting each key, indexed by the {@link SettingKey#ordinal()}, at some epoch.
+   */
+  private static final class KeyIndex {
+    private final long epoch;
+    private final List<List<Host>> hosts;
 
-    // add global
-    if (global.isSet(key)) {
-      hosts.add(global);
+    private KeyIndex(long epoch, List<List<Host>> hosts) {
+      this.epoch = epoch;
+      this.hosts = hosts;
+    }
+  }
+
+  /**
+   * The inputs of an anonymous evaluation or of a plan, which is for every user.
+   * The domain is null when only the Global Host is evaluated.
+   */
+  private static final class EvaluationKey {
+    private final SettingKey<?, ?, ?> settingKey;
+    private final Domain domain;
+    private final SceneSet scenes;
+    private final int hash;
+
+    private EvaluationKey(SettingKey<?, ?, ?> settingKey, Domain domain, SceneSet scenes) {
+      this.settingKey = settingKey;
+      this.domain = domain;
+      this.scenes = scenes;
+      this.hash = 31 * (31 * System.identityHashCode(settingKey)
+          + System.identityHashCode(domain))
+          + scenes.hashCode();
     }
 
-    return key.extractValue(hosts, userUuid);
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof EvaluationKey)) {
+        return false;
+      }
+      EvaluationKey other = (EvaluationKey) obj;
+      return hash == other.hash
+          && settingKey == other.settingKey
+          && domain == other.domain
+          && scenes.equals(other.scenes);
+    }
+  }
+
+  /**
+   * The scenes around the last location of a tracked thing.
+   */
+  private static final class TrackedRegion {
+    private final Domain domain;
+    private final long version;
+    private final float[] safeBox;
+    private final SceneSet scenes;
+
+    private TrackedRegion(Domain domain, long version, float[] safeBox, SceneSet scenes) {
+      this.domain = domain;
+      this.version = version;
+      this.safeBox = safeBox;
+      this.scenes = scenes;
+    }
+
+    private boolean contains(Domain domain, float x, float y, float z) {
+      return this.domain == domain
+          && version == domain.volumes().version()
+          && x >= safeBox[0] && y >= safeBox[1] && z >= safeBox[2]
+          && x <= safeBox[3] && y <= safeBox[4] && z <= safeBox[5];
+    }
   }
 
   /**
@@ -25,6 +25,7 @@
 package me.pietelite.nope.common.host;
 
 import java.util.Objects;
+import java.util.Optional;
 import me.pietelite.nope.common.setting.SettingKey;
 import me.pietelite.nope.common.setting.Target;
 import me.pietelite.nope.common.setting.Targetable;
@@ -71,8 +72,9 @@ public class HostedProfile implements Targetable {
    * @return the target
    */
   public Target activeTargetFor(SettingKey<?, ?, ?> key) {
-    if (profile.getTarget(key).isPresent()) {
-      return profile.getTarget(key).get();
+    Optional<Target> settingTarget = profile.getTarget(key);
+    if (settingTarget.isPresent()) {
+      return settingTarget.get();
     }
     if (target != null) {
       return target;
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.host;
+
+import java.util.NoSuchElementException;
+import me.pietelite.nope.common.setting.SettingKey;
+
+/**
+ * The results of several {@link SettingKey}s evaluated together for the same user
+ * at the same location.
+ *
+ * @see HostSystem#lookupResults(java.util.UUID, me.pietelite.nope.common.struct.Location, SettingKey[])
+ */
+public final class LookupResults {
+
+  private final SettingKey<?, ?, ?>[] keys;
+  private final Object[] values;
+
+  LookupResults(SettingKey<?, ?, ?>[] keys, Object[] values) {
+    this.keys = keys;
+    this.values = values;
+  }
+
+  /**
+   * Get the result of one of the evaluated keys.
+   * The result may be shared with other callers, so it must not be modified.
+   *
+   * @param key the key
+   * @param <X> the type of data to return
+   * @return the result
+   * @throws NoSuchElementException if the key wasn't evaluated
+   */
+  @SuppressWarnings("unchecked")
+  public <X> X get(SettingKey<X, ?, ?> key) throws NoSuchElementException {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] == key) {
+        return (X) values[i];
+      }
+    }
+    throw new NoSuchElementException("The setting key " + key.id() + " was not evaluated");
+  }
+
+  /**
+   * Get the amount of evaluated keys.
+   *
+   * @return the size
+   */
+  public int size() {
+    return keys.length;
+  }
+
+}
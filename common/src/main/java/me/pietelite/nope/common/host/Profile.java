@@ -104,6 +104,7 @@ public class Profile extends SettingCollection implements Named, Persistent, Exp
 
   @Override
   public void save() {
+    Nope.instance().system().invalidateEvaluations();
     Nope.instance().data().profiles(scope).save(this);
   }
 
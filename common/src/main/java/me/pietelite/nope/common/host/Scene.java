@@ -25,11 +25,9 @@
 package me.pietelite.nope.common.host;
 
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.stream.Collectors;
 import me.pietelite.nope.common.Nope;
 import me.pietelite.nope.common.api.edit.CuboidEditor;
@@ -76,6 +74,7 @@ public class Scene extends Host implements Scoped {
 
   public void priority(int priority) {
     this.priority = priority;
+    SceneSet.prioritiesChanged();
   }
 
   public List<Volume> volumes() {
@@ -93,6 +92,7 @@ public class Scene extends Host implements Scoped {
 
   @Override
   public void save() {
+    Nope.instance().system().invalidateEvaluations();
     Nope.instance().data().scenes(scope).save(this);
   }
 
@@ -201,7 +201,7 @@ public class Scene extends Host implements Scoped {
       if (priority < 0) {
         throw new IllegalArgumentException("Cannot set a negative priority");
       }
-      host.priority = priority;
+      host.priority(priority);
       host.save();
     }
 
@@ -245,18 +245,14 @@ public class Scene extends Host implements Scoped {
     @Override
     public void destroy() {
       host.verifyExistence();
-      Set<Domain> domains = new HashSet<>();
-      host.volumes().forEach(volume -> {
-        volume.domain().volumes().remove(volume, false);
-        domains.add(volume.domain());
-      });
+      host.volumes().forEach(volume -> volume.domain().volumes().remove(volume, true));
       scope().scenes().remove(host.name());
       Nope.instance().data().scenes(host.scope).destroy(host);
+      Nope.instance().system().invalidateEvaluations();
       host.volumes().clear();
       host.allProfiles().forEach(profile ->
           scope().relatedToProfile(profile.profile().name()).remove(host));
       host.expire();
-      domains.forEach(domain -> domain.volumes().construct());
     }
 
   }
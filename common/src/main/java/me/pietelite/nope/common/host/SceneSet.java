@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.host;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An immutable set of {@link Scene}s, as given by a {@link VolumeTree}.
+ * A tree interns the sets it gives, so each combination of scenes is usually the
+ * same object every time, and its hash code and its order by priority are only
+ * computed once. The set iterates over its scenes from the lowest to the highest priority.
+ */
+public final class SceneSet extends AbstractSet<Scene> {
+
+  /**
+   * The version of the priorities of all scenes, to know when a set must be sorted again.
+   */
+  private static final AtomicInteger PRIORITIES = new AtomicInteger();
+
+  public static final SceneSet EMPTY = new SceneSet(new Scene[0]);
+
+  private volatile Scene[] sorted;
+  private volatile int sortedPriorities;
+  private final int hash;
+
+  SceneSet(Scene[] scenes) {
+    this.sortedPriorities = PRIORITIES.get();
+    Arrays.sort(scenes, Comparator.comparingInt(Scene::priority));
+    this.sorted = scenes;
+    int hash = 0;
+    for (Scene scene : scenes) {
+      hash += scene.hashCode();
+    }
+    this.hash = hash;
+  }
+
+  /**
+   * Create a set with the given scenes, which is not interned.
+   *
+   * @param scenes the scenes, which should all be different
+   * @return the set
+   */
+  public static SceneSet of(Collection<Scene> scenes) {
+    if (scenes.isEmpty()) {
+      return EMPTY;
+    }
+    return new SceneSet(scenes.toArray(new Scene[0]));
+  }
+
+  /**
+   * Notify all sets that the priority of some scene has changed, so they must be sorted again.
+   */
+  static void prioritiesChanged() {
+    PRIORITIES.incrementAndGet();
+  }
+
+  /**
+   * Get the scenes from the lowest to the highest priority. The array must not be modified.
+   *
+   * @return the sorted scenes
+   */
+  Scene[] sorted() {
+    int priorities = PRIORITIES.get();
+    Scene[] scenes = sorted;
+    if (sortedPriorities != priorities) {
+      scenes = scenes.clone();
+      Arrays.sort(scenes, Comparator.comparingInt(Scene::priority));
+      sorted = scenes;
+      sortedPriorities = priorities;
+    }
+    return scenes;
+  }
+
+  @Override
+  public int size() {
+    return sorted.length;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    for (Scene scene : sorted) {
+      if (scene.equals(o)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @NotNull
+  @Override
+  public Iterator<Scene> iterator() {
+    Scene[] scenes = sorted();
+    return new Iterator<Scene>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < scenes.length;
+      }
+
+      @Override
+      public Scene next() {
+        if (next >= scenes.length) {
+          throw new NoSuchElementException();
+        }
+        return scenes[next++];
+      }
+    };
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o instanceof SceneSet && ((SceneSet) o).hash != hash) {
+      return false;
+    }
+    return super.equals(o);
+  }
+
+}
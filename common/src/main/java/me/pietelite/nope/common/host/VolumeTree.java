@@ -24,24 +24,38 @@
 
 package me.pietelite.nope.common.host;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.Getter;
 import me.pietelite.nope.common.math.Cuboid;
 import me.pietelite.nope.common.math.Dimension;
 import me.pietelite.nope.common.math.Geometry;
 import me.pietelite.nope.common.math.Volume;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A data structure optimized to find any volumes which
@@ -53,16 +67,90 @@ import org.jetbrains.annotations.NotNull;
  *
  * <p>Search in the following order:
  * Min X, Min Z, Max X, Max Z, ...
- * Then check Y values at the end
+ * Where those splits stop separating the volumes, like with zones stacked
+ * on top of each other, continue with Min Y, Max Y, ...
+ * Then check the remaining volumes at the end
+ *
+ * <p>The nodes of the tree are immutable, so every modification publishes a new
+ * snapshot of the tree. Queries read the current snapshot without locking and may
+ * be made from any thread, while modifications are serialized with each other.
+ *
+ * <p>Modifications which are not applied to the tree right away, either because the
+ * caller intends to construct the tree later or because the tree is currently being
+ * constructed in the background, are kept in a small overlay of added and removed
+ * volumes which is checked linearly alongside the tree.
  */
 public class VolumeTree {
 
-  private final Map<Volume, Scene> volumes = new HashMap<>();
-  protected Node root = null;
-  @Getter
-  protected int height = 0;
-  @Getter
-  protected int size = 0;
+  /**
+   * The amount of volumes a leaf may hold after an incremental insertion before
+   * we try to split it up into its own local subtree.
+   */
+  static final int LEAF_CAPACITY = 8;
+
+  /**
+   * The amount of levels by which the tree may grow past its height after
+   * its last full construction before we decide it has degraded.
+   */
+  static final int HEIGHT_SLACK = 4;
+
+  /**
+   * The amount of consecutive splits along X and Z which may fail to separate
+   * any volumes before we start splitting along Y instead.
+   */
+  static final int HORIZONTAL_ATTEMPTS = 4;
+
+  /**
+   * The amount of consecutive splits along Y which may fail to separate
+   * any volumes before we settle for a leaf.
+   */
+  static final int VERTICAL_ATTEMPTS = 2;
+
+  /**
+   * The expected cost of passing a query through a dividing node, relative to
+   * the cost of testing whether a single volume contains it.
+   */
+  static final float DIVIDER_COST = 1f;
+
+  /**
+   * The deepest a tree constructed with {@link Strategy#COST} may get.
+   */
+  static final int COST_DEPTH_LIMIT = 64;
+
+  /**
+   * The amount of queries answered by a tree which has been modified in place
+   * before we flatten it into a {@link FlattenedVolumeTree}.
+   */
+  static final int FLATTEN_THRESHOLD = 1024;
+
+  /**
+   * The amount of chunk sections to index, if sections are indexed at all.
+   */
+  static final int SECTION_CAPACITY = 16384;
+
+  /**
+   * The amount of distinct sets of scenes to intern before starting over.
+   */
+  static final int INTERNED_CAPACITY = 4096;
+
+  /**
+   * The amount of added volumes the overlay may hold when a construction starts in the
+   * background before an interim tree is constructed right away to answer queries instead.
+   */
+  static final int OVERLAY_CAPACITY = 64;
+
+  private final Map<Volume, Scene> volumes = new ConcurrentHashMap<>();
+  private final Map<Set<Scene>, SceneSet> interned = new ConcurrentHashMap<>();
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  private int constructedHeight = 0;
+  private int constructedEntries = 0;
+  private Executor executor = Runnable::run;
+  private Strategy strategy = Strategy.MEDIAN;
+  private ForkJoinPool pool = ForkJoinPool.commonPool();
+  private volatile ChunkSectionIndex sections = null;
+  private int generation = 0;
+  private List<Map.Entry<Volume, Scene>> pending = null;
+  private volatile long version = 0;
 
   public VolumeTree(boolean construct) {
     construct();
@@ -72,6 +160,57 @@ public class VolumeTree {
     this(false);
   }
 
+  /**
+   * Set the executor on which to construct this tree when it is constructed asynchronously.
+   * By default, the tree is constructed on the calling thread.
+   *
+   * @param executor the executor
+   */
+  public void executor(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Set the pool in which to construct large trees, so the subtrees of large
+   * subsets of volumes are constructed in parallel. By default, the common pool
+   * is used.
+   *
+   * @param pool the pool, or null to construct trees only on the constructing thread
+   */
+  public void pool(@Nullable ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Set the strategy with which to construct this tree from now on.
+   * By default, the tree is constructed with {@link Strategy#MEDIAN}.
+   *
+   * @param strategy the strategy
+   */
+  public void strategy(Strategy strategy) {
+    this.strategy = strategy;
+  }
+
+  /**
+   * Set whether to index the scenes of whole chunk sections to speed up
+   * {@link #containingBlock(int, int, int)}. By default, sections are not indexed.
+   *
+   * @param index true to index sections
+   */
+  public void indexSections(boolean index) {
+    this.sections = index ? new ChunkSectionIndex(this, SECTION_CAPACITY) : null;
+  }
+
+  /**
+   * Get the version of the contents of this tree, which changes whenever
+   * a volume is added or removed.
+   *
+   * @return the version
+   */
+  public long version() {
+    return version;
+  }
+
   /**
    * Calculate all scenes which have any intersecting volumes
    * with this one.
@@ -96,50 +235,43 @@ public class VolumeTree {
    */
   public Set<Scene> intersecting(Volume volume) {
     Set<Scene> all = new HashSet<>();
-    volumes.forEach((v, z) -> {
-      if (Geometry.intersects(v, volume) && v != volume) {
-        all.add(z);
+    Cuboid bounds = volume.circumscribed();
+    // Only volumes whose bounds overlap can intersect, so let the tree narrow them down
+    Map<Volume, Scene> candidates = overlapping(bounds.minX(), bounds.minY(), bounds.minZ(),
+        bounds.maxX(), bounds.maxY(), bounds.maxZ());
+    for (Map.Entry<Volume, Scene> candidate : candidates.entrySet()) {
+      if (candidate.getKey() != volume
+          && !all.contains(candidate.getValue())
+          && Geometry.intersects(candidate.getKey(), volume)) {
+        all.add(candidate.getValue());
       }
-    });
+    }
     return all;
   }
 
   /**
-   * Get all {@link Scene}s that wholly contain the given {@link Volume}.
-   * The math for this is pretty complex, so to simplify this, we check how this volume is contained
-   * by checking the volumes that contain the corners of a cuboid that's merely an approximation of
-   * the given volume.
+   * Get all {@link Scene}s with a volume that wholly contains the given {@link Volume}.
+   * Containment between arbitrary volumes is expensive to calculate, so this finds the
+   * {@link Scene}s with a volume that wholly contains a {@link Cuboid} approximating
+   * the given volume instead, in a single search of the tree.
    *
-   * <p>The <code>discriminate</code> parameter decides how strict to be with the approximation, depending
+   * <p>The <code>discriminate</code> parameter decides which approximation to use, depending
    * on whether it is better to accidentally end up with some added incorrect {@link Scene}s
    * or to accidentally end up with some missing correct {@link Scene}s.
    *
    * @param volume       the volume to contain
-   * @param discriminate true to ensure that every correct {@link Scene} is included in the returned list,
-   *                     but extras are possible. False to ensure that there are no extra {@link Scene}s
+   * @param discriminate true to approximate the volume with its inscribed cuboid, which ensures
+   *                     that every correct {@link Scene} is included in the returned set,
+   *                     but extras are possible. False to approximate the volume with its
+   *                     circumscribed cuboid, which ensures that there are no extra {@link Scene}s
    *                     included, but it may be missing some correct ones
    * @return the set of {@link Scene}s containing this {@link Volume}
    */
   public Set<Scene> containing(Volume volume, boolean discriminate) {
-    Set<Scene> all = new HashSet<>();
-    Cuboid approximation = discriminate ? volume.circumscribed() : volume.inscribed();
-    float[] listX = new float[]{approximation.minX(), approximation.maxX()};
-    float[] listY = new float[]{approximation.minY(), approximation.maxY()};
-    float[] listZ = new float[]{approximation.minZ(), approximation.maxZ()};
-    boolean first = true;
-    for (int x = 0; x < 2; x++) {
-      for (int y = 0; y < 2; y++) {
-        for (int z = 0; z < 2; z++) {
-          if (first) {
-            all.addAll(containing(listX[x], listY[y], listZ[z]));
-            first = false;
-          } else {
-            all.retainAll(containing(listX[x], listY[y], listZ[z]));
-          }
-        }
-      }
-    }
-    return all;
+    Cuboid approximation = discriminate ? volume.inscribed() : volume.circumscribed();
+    return containingCuboid(approximation.minX(), approximation.minY(), approximation.minZ(),
+        approximation.maxX(), approximation.maxY(), approximation.maxZ(),
+        true);
   }
 
   /**
@@ -151,10 +283,115 @@ public class VolumeTree {
    * @return the set of scenes
    */
   @NotNull
-  public Set<Scene> containing(float x, float y, float z) {
+  public SceneSet containing(float x, float y, float z) {
     return containingCuboid(x, y, z, x, y, z, false);
   }
 
+  /**
+   * Get the set of scenes that contain this given point, along with a box around the
+   * point in which every point is contained by exactly the same scenes, as long as
+   * the {@link #version()} of this tree doesn't change. The box is bounded by the
+   * dividers on the way to the point's leaf and by the faces of the volumes in it,
+   * and it is only as small as the point itself if the point is near the curved
+   * boundary of a volume.
+   *
+   * @param x       the x coordinate
+   * @param y       the y coordinate
+   * @param z       the z coordinate
+   * @param safeBox an array in which to put the minimum x, y and z and the maximum x, y and z
+   *                of the box, all inclusive
+   * @return the set of scenes
+   */
+  @NotNull
+  public SceneSet containing(float x, float y, float z, float[] safeBox) {
+    Arrays.fill(safeBox, 0, 3, Float.NEGATIVE_INFINITY);
+    Arrays.fill(safeBox, 3, 6, Float.POSITIVE_INFINITY);
+    Snapshot current = currentSnapshot();
+    Node node = current.root;
+    while (node instanceof DimensionDivider) {
+      DimensionDivider divider = (DimensionDivider) node;
+      int axis = divider.dimension().ordinal();
+      float value = coordinate(divider.dimension(), x, y, z);
+      boolean minimum = divider.comparison() == Comparison.MIN;
+      if (minimum ? value < divider.divider : value <= divider.divider) {
+        safeBox[axis + 3] = Math.min(safeBox[axis + 3],
+            minimum ? Math.nextDown(divider.divider) : divider.divider);
+        node = divider.left;
+      } else {
+        safeBox[axis] = Math.max(safeBox[axis], minimum ? divider.divider : Math.nextUp(divider.divider));
+        node = divider.right;
+      }
+    }
+    Set<Scene> scenes = new HashSet<>();
+    if (node instanceof ViabilityLeaf) {
+      ((ViabilityLeaf) node).viable.forEach((volume, scene) -> {
+        if (!current.removed.contains(volume) && containsWithin(volume, x, y, z, safeBox)) {
+          scenes.add(scene);
+        }
+      });
+    }
+    current.added.forEach((volume, scene) -> {
+      if (containsWithin(volume, x, y, z, safeBox)) {
+        scenes.add(scene);
+      }
+    });
+    return intern(scenes);
+  }
+
+  /**
+   * Whether the volume contains the point, after shrinking the box around the point
+   * so every point in it is contained by the volume if and only if the point is.
+   */
+  private static boolean containsWithin(Volume volume, float x, float y, float z, float[] box) {
+    boolean contains = volume.containsPoint(x, y, z);
+    Cuboid inner = volume.inscribed();
+    if (contains && inner.containsPoint(x, y, z)) {
+      box[0] = Math.max(box[0], inner.minX());
+      box[1] = Math.max(box[1], inner.minY());
+      box[2] = Math.max(box[2], inner.minZ());
+      box[3] = Math.min(box[3], Math.nextDown(inner.maxX()));
+      box[4] = Math.min(box[4], Math.nextDown(inner.maxY()));
+      box[5] = Math.min(box[5], Math.nextDown(inner.maxZ()));
+      return true;
+    }
+    if (!contains) {
+      // Stay clear of the outer bounds along the dimension on which the point is farthest from them
+      Cuboid outer = volume.circumscribed();
+      Dimension farthest = null;
+      boolean below = false;
+      float gap = 0;
+      for (Dimension dimension : Dimension.values()) {
+        float value = coordinate(dimension, x, y, z);
+        if (min(outer, dimension) - value > gap) {
+          gap = min(outer, dimension) - value;
+          farthest = dimension;
+          below = true;
+        } else if (value - max(outer, dimension) > gap) {
+          gap = value - max(outer, dimension);
+          farthest = dimension;
+          below = false;
+        }
+      }
+      if (farthest != null) {
+        int axis = farthest.ordinal();
+        if (below) {
+          box[axis + 3] = Math.min(box[axis + 3], Math.nextDown(min(outer, farthest)));
+        } else {
+          box[axis] = Math.max(box[axis], Math.nextUp(max(outer, farthest)));
+        }
+        return false;
+      }
+    }
+    // The point is on the boundary of the volume, where only the point itself is certain
+    box[0] = x;
+    box[1] = y;
+    box[2] = z;
+    box[3] = x;
+    box[4] = y;
+    box[5] = z;
+    return contains;
+  }
+
   /**
    * Get the set of {@link Volume}s that contain this given point.
    *
@@ -164,9 +401,41 @@ public class VolumeTree {
    * @return the set of scenes
    */
   @NotNull
-  public Set<Scene> containingBlock(int x, int y, int z) {
+  public SceneSet containingBlock(int x, int y, int z) {
+    ChunkSectionIndex currentSections = sections;
+    if (currentSections != null) {
+      return intern(currentSections.containingBlock(x, y, z));
+    }
     return containingCuboid(x, y, z, x + 1, y + 1, z + 1, true);
+  }
 
+  /**
+   * Get the scenes which contain every point in a block, if every other scene
+   * contains no point in it at all. Then {@link #containing(float, float, float)}
+   * gives these same scenes for every point in the block.
+   *
+   * @param x the block x coordinate
+   * @param y the block y coordinate
+   * @param z the block z coordinate
+   * @return the scenes, or null if some scene may contain only part of the block
+   */
+  @Nullable
+  public SceneSet containingUniformBlock(int x, int y, int z) {
+    Map<Volume, Scene> overlapping = overlapping(x, y, z, x + 1, y + 1, z + 1);
+    Set<Scene> scenes = new HashSet<>();
+    overlapping.forEach((volume, scene) -> {
+      if (volume.containsCuboid(x, y, z, x + 1, y + 1, z + 1, true)) {
+        scenes.add(scene);
+      }
+    });
+    for (Map.Entry<Volume, Scene> entry : overlapping.entrySet()) {
+      // A volume only cutting through the block doesn't matter if another volume of its scene covers it
+      if (!scenes.contains(entry.getValue())
+          && !entry.getKey().excludesCuboid(x, y, z, x + 1, y + 1, z + 1)) {
+        return null;
+      }
+    }
+    return intern(scenes);
   }
 
   /**
@@ -182,154 +451,529 @@ public class VolumeTree {
    * @return the set of scenes
    */
   @NotNull
-  public Set<Scene> containingCuboid(float minX, float minY, float minZ,
-                                     float maxX, float maxY, float maxZ,
-                                     boolean maxInclusive) {
-    if (this.root == null) {
+  public SceneSet containingCuboid(float minX, float minY, float minZ,
+                                   float maxX, float maxY, float maxZ,
+                                   boolean maxInclusive) {
+    Snapshot current = currentSnapshot();
+    if (current.added.isEmpty() && current.removed.isEmpty()) {
+      return intern(findScenes(current, minX, minY, minZ, maxX, maxY, maxZ, maxInclusive,
+          Collections.emptySet()));
+    }
+    Set<Scene> scenes = findScenes(current, minX, minY, minZ, maxX, maxY, maxZ, maxInclusive,
+        current.removed);
+    current.added.forEach((volume, scene) -> {
+      if (ViabilityLeaf.contains(volume, minX, minY, minZ, maxX, maxY, maxZ, maxInclusive)) {
+        scenes.add(scene);
+      }
+    });
+    return intern(scenes);
+  }
+
+  /**
+   * Get the interned set with the same scenes as the given set.
+   *
+   * @param scenes the scenes
+   * @return the interned set
+   */
+  SceneSet intern(Set<Scene> scenes) {
+    if (scenes.isEmpty()) {
+      return SceneSet.EMPTY;
+    }
+    SceneSet found = interned.get(scenes);
+    if (found != null) {
+      return found;
+    }
+    if (interned.size() >= INTERNED_CAPACITY) {
+      interned.clear();
+    }
+    SceneSet created = SceneSet.of(scenes);
+    found = interned.putIfAbsent(created, created);
+    return found == null ? created : found;
+  }
+
+  /**
+   * Get all volumes, with their scenes, whose circumscribed cuboids overlap the given cuboid.
+   * The boundaries of all cuboids are considered inclusive.
+   *
+   * @param minX the minimum X value
+   * @param minY the minimum Y value
+   * @param minZ the minimum Z value
+   * @param maxX the maximum X value
+   * @param maxY the maximum Y value
+   * @param maxZ the maximum Z value
+   * @return the overlapping volumes
+   */
+  Map<Volume, Scene> overlapping(float minX, float minY, float minZ,
+                                 float maxX, float maxY, float maxZ) {
+    Snapshot current = currentSnapshot();
+    Map<Volume, Scene> found = new HashMap<>();
+    current.root.findOverlapping(minX, minY, minZ, maxX, maxY, maxZ, found);
+    found.keySet().removeAll(current.removed);
+    current.added.forEach((volume, scene) -> {
+      if (ViabilityLeaf.overlaps(volume, minX, minY, minZ, maxX, maxY, maxZ)) {
+        found.put(volume, scene);
+      }
+    });
+    return found;
+  }
+
+  private Snapshot currentSnapshot() {
+    Snapshot current = snapshot.get();
+    if (current == null) {
       throw new IllegalStateException("Root of VolumeTree is not initialized. Did you forget to construct?");
     }
-    return root.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive)
-        .stream()
-        .map(volumes::get)
-        .collect(Collectors.toSet());
+    return current;
+  }
+
+  /**
+   * Find the scenes in the root of a snapshot, preferring its flattened copy. A root which
+   * has been modified in place is only flattened once it has answered enough queries to
+   * make it worthwhile, since it may well be replaced again soon.
+   */
+  private Set<Scene> findScenes(Snapshot current,
+                                float minX, float minY, float minZ,
+                                float maxX, float maxY, float maxZ,
+                                boolean maxInclusive,
+                                Set<Volume> excluded) {
+    FlattenedVolumeTree flattened = current.flattened;
+    if (flattened == null) {
+      if (current.queries.incrementAndGet() == FLATTEN_THRESHOLD) {
+        executor.execute(() -> current.flattened = FlattenedVolumeTree.of(current.root));
+      }
+      return current.root.findScenes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive, excluded);
+    }
+    return flattened.findScenes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive, excluded);
+  }
+
+  public int getHeight() {
+    Snapshot current = snapshot.get();
+    return current == null ? 0 : calculateHeight(current.root);
+  }
+
+  public int getSize() {
+    return size();
+  }
+
+  /**
+   * The average amount of volumes in each leaf of the tree. A volume which
+   * is in multiple leaves is counted once for each of them.
+   *
+   * @return the average leaf occupancy
+   */
+  public double getAverageLeafOccupancy() {
+    Snapshot current = snapshot.get();
+    if (current == null || current.root.leaves() == 0) {
+      return 0;
+    }
+    return (double) current.root.entries() / current.root.leaves();
   }
 
+  /**
+   * The amount of dividing nodes in the tree.
+   *
+   * @return the size
+   */
   public int size() {
-    return size;
+    Snapshot current = snapshot.get();
+    return current == null ? 0 : calculateSize(current.root);
   }
 
   /**
    * Construct the internal data structure for querying containing {@link Volume}s.
    */
-  public void construct() {
-    root = construct(Dimension.X, Comparison.MIN, new ArrayList<>(this.volumes.keySet()), 0);
-    height = calculateHeight(root);
-    size = calculateSize(root);
+  public synchronized void construct() {
+    // Any construction happening in the background is now outdated
+    generation++;
+    pending = null;
+    Node constructed = construct(strategy, this.volumes);
+    publishConstructed(constructed, FlattenedVolumeTree.of(constructed));
+  }
+
+  /**
+   * Construct the internal data structure for querying containing {@link Volume}s
+   * on this tree's {@link #executor(Executor)}. Until the construction completes,
+   * the current tree keeps answering queries along with the overlay of
+   * modifications made since. Modifications made during construction are
+   * applied to the new tree before it replaces the current one.
+   *
+   * <p>If there is no current tree, or its overlay has grown too large to check on every
+   * query, a tree is constructed with {@link Strategy#MEDIAN} on the calling thread first.
+   * That is the tree itself if this tree is constructed with that strategy anyway.
+   *
+   * @return a future which completes once the new tree is in use
+   */
+  public synchronized CompletableFuture<Void> constructAsync() {
+    Snapshot current = snapshot.get();
+    if ((current == null || current.added.size() > OVERLAY_CAPACITY) && strategy == Strategy.MEDIAN) {
+      // An interim tree would be the same tree, so just construct it now
+      construct();
+      return CompletableFuture.completedFuture(null);
+    }
+    int constructionGeneration = ++generation;
+    Map<Volume, Scene> base = new HashMap<>(this.volumes);
+    Strategy constructionStrategy = strategy;
+    pending = new LinkedList<>();
+    if (current == null || current.added.size() > OVERLAY_CAPACITY) {
+      // Don't let every query check all the volumes until the construction completes
+      publish(construct(Strategy.MEDIAN, base), new ConcurrentHashMap<>());
+    }
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    executor.execute(() -> {
+      try {
+        Node constructed = construct(constructionStrategy, base);
+        FlattenedVolumeTree flattened = FlattenedVolumeTree.of(constructed);
+        synchronized (this) {
+          if (constructionGeneration == generation) {
+            Node replayed = replayPending(constructed);
+            pending = null;
+            publishConstructed(replayed, replayed == constructed ? flattened : null);
+          }
+        }
+        future.complete(null);
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Write this tree to a stream, so it can be read again with {@link #readFrom(InputStream)}
+   * instead of being constructed. Nothing is written if the tree is waiting to be constructed.
+   *
+   * @param out the stream
+   * @return true if the tree was written
+   * @throws IOException if the stream fails
+   */
+  public synchronized boolean writeTo(OutputStream out) throws IOException {
+    if (overlaid()) {
+      return false;
+    }
+    DataOutputStream dataOut = new DataOutputStream(out);
+    VolumeTreeSerializer.write(dataOut, snapshot.get().root, volumes, strategy);
+    dataOut.flush();
+    return true;
+  }
+
+  /**
+   * Read a tree from a stream which was written with {@link #writeTo(OutputStream)}
+   * and use it in place of constructing this tree. The tree is only used if it was
+   * written for exactly the volumes that are in this tree now and with the same
+   * {@link Strategy}.
+   *
+   * @param in the stream
+   * @return true if the tree was read and is now in use, false if it must be constructed instead
+   * @throws IOException if the stream fails
+   */
+  public synchronized boolean readFrom(InputStream in) throws IOException {
+    Node read = VolumeTreeSerializer.read(new DataInputStream(in), volumes, strategy);
+    if (read == null) {
+      return false;
+    }
+    // Any construction happening in the background is now outdated
+    generation++;
+    pending = null;
+    publishConstructed(read, FlattenedVolumeTree.of(read));
+    return true;
+  }
+
+  private boolean constructing() {
+    return pending != null;
+  }
+
+  private Node replayPending(Node constructed) {
+    for (Map.Entry<Volume, Scene> modification : pending) {
+      if (modification.getValue() == null) {
+        constructed = delete(constructed, Dimension.X, Comparison.MIN, modification.getKey());
+      } else {
+        constructed = insert(constructed, Dimension.X, Comparison.MIN,
+            modification.getKey(), modification.getValue());
+      }
+    }
+    return constructed;
+  }
+
+  private void publishConstructed(Node constructed, FlattenedVolumeTree flattened) {
+    constructedHeight = constructed.height();
+    constructedEntries = constructed.entries();
+    // Let go of the sets of scenes which may not exist anymore
+    interned.clear();
+    snapshot.set(new Snapshot(constructed, flattened,
+        new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet()));
+  }
+
+  private void publish(Node root, Map<Volume, Scene> added) {
+    snapshot.set(new Snapshot(root, null, added, ConcurrentHashMap.newKeySet()));
+  }
+
+  private Node construct(Strategy strategy, Map<Volume, Scene> scenes) {
+    VolumeTreeBuilder builder = new VolumeTreeBuilder(scenes);
+    if (pool == null || scenes.size() < VolumeTreeBuilder.FORK_THRESHOLD) {
+      return builder.construct(strategy);
+    }
+    return pool.invoke(ForkJoinTask.adapt(() -> builder.construct(strategy)));
   }
 
   protected final Node construct(Dimension dimension,
                                  Comparison comparison,
                                  List<Volume> subset,
-                                 int unchangedCount) {
-    int count = subset.size();
+                                 int unchangedCount,
+                                 Map<Volume, Scene> scenes) {
+    return new VolumeTreeBuilder(withScenes(subset, scenes))
+        .constructByMedian(dimension, comparison, unchangedCount);
+  }
 
-    if (count == 0) {
-      return new EmptyNode();
-    }
+  /**
+   * Construct a subtree by choosing, at each node, the division which minimizes the
+   * expected amount of volumes a query must test, assuming queries are spread evenly
+   * through the region covered by the node. A side of a division is weighted by
+   * its share of the node's region along the divided dimension, so one very large
+   * volume doesn't keep every small volume around it from being divided up.
+   *
+   * @param subset the volumes in the region
+   * @param lower  the lower bounds of the region, indexed by dimension
+   * @param upper  the upper bounds of the region, indexed by dimension
+   * @param depth  the depth of the subtree in the whole tree
+   * @param scenes the scenes of all volumes
+   * @return the root of the subtree
+   */
+  protected final Node constructByCost(List<Volume> subset, float[] lower, float[] upper,
+                                       int depth, Map<Volume, Scene> scenes) {
+    return new VolumeTreeBuilder(withScenes(subset, scenes)).constructByCost(lower, upper, depth);
+  }
 
-    if (count == 1 || unchangedCount >= 4) {
-      return new ViabilityLeaf(new HashSet<>(subset));
+  static DimensionDivider newDivider(Dimension dimension, Comparison comparison,
+                                     float divider, Node left, Node right) {
+    switch (dimension) {
+      case X:
+        return comparison == Comparison.MIN
+            ? new DimensionDividerMinX(divider, left, right)
+            : new DimensionDividerMaxX(divider, left, right);
+      case Y:
+        return comparison == Comparison.MIN
+            ? new DimensionDividerMinY(divider, left, right)
+            : new DimensionDividerMaxY(divider, left, right);
+      default:
+        return comparison == Comparison.MIN
+            ? new DimensionDividerMinZ(divider, left, right)
+            : new DimensionDividerMaxZ(divider, left, right);
     }
+  }
 
-    int divIndex = count / 2;
-    float divider;
+  private static Map<Volume, Scene> withScenes(Collection<Volume> subset, Map<Volume, Scene> scenes) {
+    Map<Volume, Scene> viable = new HashMap<>();
+    subset.forEach(volume -> viable.put(volume, scenes.get(volume)));
+    return viable;
+  }
 
-    List<Volume> leftKeys;
-    List<Volume> rightKeys;
-    boolean changed;
-    Node left;
-    Node right;
+  protected int calculateHeight(Node node) {
+    return node.height();
+  }
 
-    if (dimension == Dimension.X) {
-      if (comparison == Comparison.MIN) {
-
-        /* X MIN */
-        subset.sort(Comparator.comparing(volume -> volume.circumscribed().minX()));
-        while (divIndex > 0 && (
-            subset.get(divIndex).circumscribed().minX()
-                == subset.get(divIndex - 1).circumscribed().minX())
-        ) {
-          divIndex--;
-        }
-        divider = subset.get(divIndex).circumscribed().minX();
-        leftKeys = subset.subList(0, divIndex);
-        rightKeys = new LinkedList<>(subset);
-        // get rid of invalid elements in rightKeys
-        changed = rightKeys.removeIf(volume -> volume.circumscribed().maxX() < divider);
-
-        left = construct(Dimension.Z, Comparison.MIN, leftKeys, 0);
-        right = construct(Dimension.Z, Comparison.MIN, rightKeys, changed ? 0 : unchangedCount + 1);
-        return new DimensionDividerMinX(divider, left, right);
-      } else {  // comparison == Comparison.MAX
-
-        /* X MAX */
-        subset.sort(Comparator.comparing(volume -> volume.circumscribed().maxX()));
-        while (divIndex < count - 1 && (
-            subset.get(divIndex).circumscribed().maxX()
-                == subset.get(divIndex - 1).circumscribed().maxX())
-        ) {
-          divIndex++;
-        }
-        divider = subset.get(divIndex - 1).circumscribed().maxX();
-        leftKeys = new LinkedList<>(subset);
-        rightKeys = subset.subList(divIndex, count);
-        // get rid of invalid elements in leftKeys
-        changed = leftKeys.removeIf(volume -> volume.circumscribed().minX() > divider);
-
-        left = construct(Dimension.Z, Comparison.MAX, leftKeys, changed ? 0 : unchangedCount + 1);
-        right = construct(Dimension.Z, Comparison.MAX, rightKeys, 0);
-        return new DimensionDividerMaxX(divider, left, right);
-      }
-    } else {  // dimension == Dimension.Z
-      if (comparison == Comparison.MIN) {
-
-        /* Z MIN */
-        subset.sort(Comparator.comparing(volume -> volume.circumscribed().minZ()));
-        while (divIndex > 0 && (
-            subset.get(divIndex).circumscribed().minZ()
-                == subset.get(divIndex - 1).circumscribed().minZ())
-        ) {
-          divIndex--;
-        }
-        divider = subset.get(divIndex).circumscribed().minZ();
-        leftKeys = subset.subList(0, divIndex);
-        rightKeys = new LinkedList<>(subset);
-        // get rid of invalid elements in rightKeys
-        changed = rightKeys.removeIf(volume -> volume.circumscribed().maxZ() < divider);
-
-        left = construct(Dimension.X, Comparison.MAX, leftKeys, 0);
-        right = construct(Dimension.X, Comparison.MAX, rightKeys, changed ? 0 : unchangedCount + 1);
-        return new DimensionDividerMinZ(divider, left, right);
-      } else {
+  protected int calculateSize(Node node) {
+    return node.size();
+  }
+
+  /**
+   * Insert a volume into the subtree at the given node without reconstructing it.
+   * Only the nodes along the paths to the viable leaves are replaced, and a leaf
+   * that has grown too large is split up by constructing a local subtree in its place.
+   *
+   * @param node       the root of the subtree
+   * @param dimension  the dimension with which the subtree was constructed, if not a divider
+   * @param comparison the comparison with which the subtree was constructed, if not a divider
+   * @param volume     the volume to insert
+   * @param scene      the scene of which the volume is a part
+   * @return the new root of the subtree
+   */
+  protected final Node insert(Node node, Dimension dimension, Comparison comparison,
+                              Volume volume, Scene scene) {
+    if (node instanceof DimensionDivider) {
+      DimensionDivider divider = (DimensionDivider) node;
+      dimension = divider.dimension();
+      comparison = divider.comparison();
+      Dimension nextDimension = nextDimension(dimension);
+      Comparison nextComparison = nextComparison(dimension, comparison);
+      Node left = divider.left;
+      Node right = divider.right;
+      if (viableLeft(divider.divider, dimension, comparison, volume)) {
+        left = insert(left, nextDimension, nextComparison, volume, scene);
+      }
+      if (viableRight(divider.divider, dimension, comparison, volume)) {
+        right = insert(right, nextDimension, nextComparison, volume, scene);
+      }
+      return divider.withChildren(left, right);
+    }
 
-        /* Z MAX */
-        subset.sort(Comparator.comparing(volume -> volume.circumscribed().maxZ()));
-        while (divIndex < count - 1 && (
-            subset.get(divIndex).circumscribed().maxZ()
-                == subset.get(divIndex - 1).circumscribed().maxZ())
-        ) {
-          divIndex++;
+    Map<Volume, Scene> viable = new HashMap<>();
+    if (node instanceof ViabilityLeaf) {
+      viable.putAll(((ViabilityLeaf) node).viable);
+    }
+    viable.put(volume, scene);
+    if (viable.size() > LEAF_CAPACITY) {
+      // Only keep the local subtree if it actually split the volumes apart
+      Node local = construct(dimension, comparison, new ArrayList<>(viable.keySet()), 0, viable);
+      if (local.maxOccupancy() < viable.size()) {
+        return local;
+      }
+    }
+    return new ViabilityLeaf(viable);
+  }
+
+  /**
+   * Remove a volume from the subtree at the given node without reconstructing it.
+   * Sibling leaves which become small enough are merged together again.
+   *
+   * @param node       the root of the subtree
+   * @param dimension  the dimension with which the subtree was constructed, if not a divider
+   * @param comparison the comparison with which the subtree was constructed, if not a divider
+   * @param volume     the volume to remove
+   * @return the new root of the subtree
+   */
+  protected final Node delete(Node node, Dimension dimension, Comparison comparison, Volume volume) {
+    if (node instanceof DimensionDivider) {
+      DimensionDivider divider = (DimensionDivider) node;
+      dimension = divider.dimension();
+      comparison = divider.comparison();
+      Dimension nextDimension = nextDimension(dimension);
+      Comparison nextComparison = nextComparison(dimension, comparison);
+      Node left = divider.left;
+      Node right = divider.right;
+      // Construction may leave volumes which sit exactly on the divider on either side,
+      // so look on both sides of the divider in that case
+      if (min(volume.circumscribed(), dimension) <= divider.divider) {
+        left = delete(left, nextDimension, nextComparison, volume);
+      }
+      if (max(volume.circumscribed(), dimension) >= divider.divider) {
+        right = delete(right, nextDimension, nextComparison, volume);
+      }
+      if (left == divider.left && right == divider.right) {
+        return divider;
+      }
+      if (left instanceof EmptyNode && right instanceof EmptyNode) {
+        return new EmptyNode();
+      }
+      if (!(left instanceof DimensionDivider) && !(right instanceof DimensionDivider)
+          && left.entries() + right.entries() <= LEAF_CAPACITY) {
+        Map<Volume, Scene> merged = new HashMap<>();
+        if (left instanceof ViabilityLeaf) {
+          merged.putAll(((ViabilityLeaf) left).viable);
         }
-        divider = subset.get(divIndex - 1).circumscribed().maxZ();
-        leftKeys = new LinkedList<>(subset);
-        rightKeys = subset.subList(divIndex, count);
-        // get rid of invalid elements in leftKeys
-        changed = leftKeys.removeIf(volume -> volume.circumscribed().minZ() > divider);
+        if (right instanceof ViabilityLeaf) {
+          merged.putAll(((ViabilityLeaf) right).viable);
+        }
+        return new ViabilityLeaf(merged);
+      }
+      return divider.withChildren(left, right);
+    }
 
-        left = construct(Dimension.X, Comparison.MIN, leftKeys, changed ? 0 : unchangedCount + 1);
-        right = construct(Dimension.X, Comparison.MIN, rightKeys, 0);
-        return new DimensionDividerMaxZ(divider, left, right);
+    if (node instanceof ViabilityLeaf && ((ViabilityLeaf) node).viable.containsKey(volume)) {
+      Map<Volume, Scene> viable = new HashMap<>(((ViabilityLeaf) node).viable);
+      viable.remove(volume);
+      if (viable.isEmpty()) {
+        return new EmptyNode();
       }
+      return new ViabilityLeaf(viable);
     }
+    return node;
+  }
 
+  /**
+   * Whether the tree has strayed far enough from the shape it had after its last full
+   * construction that it should be constructed again. The tree is considered degraded
+   * if it has grown too tall or if the volumes are duplicated across too many leaves.
+   *
+   * @param node the root of the tree
+   * @return true if the tree should be reconstructed
+   */
+  protected boolean degraded(Node node) {
+    if (node.height() > constructedHeight + constructedHeight / 2 + HEIGHT_SLACK) {
+      return true;
+    }
+    int allowedEntries = Math.max(constructedEntries, volumes.size());
+    return node.entries() > allowedEntries + allowedEntries / 2 + LEAF_CAPACITY;
+  }
 
+  private void update(Node newRoot) {
+    publish(newRoot, new ConcurrentHashMap<>());
+    if (degraded(newRoot)) {
+      constructAsync();
+    }
   }
 
-  protected int calculateHeight(Node node) {
-    if (node instanceof DimensionDivider) {
-      return 1 + Math.max(
-          calculateHeight(((DimensionDivider) node).left),
-          calculateHeight(((DimensionDivider) node).right));
+  /**
+   * Whether modifications must currently be kept in the overlay instead of being
+   * applied to the tree itself.
+   *
+   * @return true if the overlay must be used
+   */
+  private boolean overlaid() {
+    Snapshot current = snapshot.get();
+    return current == null || constructing() || !current.added.isEmpty() || !current.removed.isEmpty();
+  }
+
+  static float min(Cuboid cuboid, Dimension dimension) {
+    switch (dimension) {
+      case X:
+        return cuboid.minX();
+      case Y:
+        return cuboid.minY();
+      default:
+        return cuboid.minZ();
     }
-    return 0;
   }
 
-  protected int calculateSize(Node node) {
-    if (node instanceof VolumeTree.DimensionDivider) {
-      return 1 + calculateSize(((DimensionDivider) node).left)
-          + calculateSize(((DimensionDivider) node).right);
+  static float max(Cuboid cuboid, Dimension dimension) {
+    switch (dimension) {
+      case X:
+        return cuboid.maxX();
+      case Y:
+        return cuboid.maxY();
+      default:
+        return cuboid.maxZ();
+    }
+  }
+
+  private static float coordinate(Dimension dimension, float x, float y, float z) {
+    switch (dimension) {
+      case X:
+        return x;
+      case Y:
+        return y;
+      default:
+        return z;
+    }
+  }
+
+  private static boolean viableLeft(float divider, Dimension dimension,
+                                    Comparison comparison, Volume volume) {
+    float min = min(volume.circumscribed(), dimension);
+    return comparison == Comparison.MIN ? min < divider : min <= divider;
+  }
+
+  private static boolean viableRight(float divider, Dimension dimension,
+                                     Comparison comparison, Volume volume) {
+    float max = max(volume.circumscribed(), dimension);
+    return comparison == Comparison.MIN ? max >= divider : max > divider;
+  }
+
+  static Dimension nextDimension(Dimension dimension) {
+    switch (dimension) {
+      case X:
+        return Dimension.Z;
+      case Z:
+        return Dimension.X;
+      default:
+        // once we split along Y, we keep splitting along Y
+        return Dimension.Y;
     }
-    return 0;
+  }
+
+  static Comparison nextComparison(Dimension dimension, Comparison comparison) {
+    if (dimension == Dimension.X) {
+      return comparison;
+    }
+    return comparison == Comparison.MIN ? Comparison.MAX : Comparison.MIN;
   }
 
   /**
@@ -337,15 +981,30 @@ public class VolumeTree {
    *
    * @param volume    the volume
    * @param scene      the scene of which the volume is a part
-   * @param construct whether to construct the entire tree again. If this is called multiple
-   *                  times consecutively, this should be false and then this stucture should
-   *                  be rebuilt again manually with {@link #construct()}
+   * @param construct whether to bring the tree up to date. The volume is inserted in place
+   *                  and the entire tree is only constructed again if it has degraded.
+   *                  If this is called multiple times consecutively, this should be false
+   *                  and then this stucture should be rebuilt again manually with {@link #construct()}
    */
-  public void put(Volume volume, Scene scene, boolean construct) {
+  public synchronized void put(Volume volume, Scene scene, boolean construct) {
     this.volumes.put(volume, scene);
-    if (construct) {
-      construct();
+    if (constructing()) {
+      pending.add(new AbstractMap.SimpleImmutableEntry<>(volume, scene));
+    }
+    if (!construct || overlaid()) {
+      Snapshot current = snapshot.get();
+      if (current != null) {
+        current.removed.remove(volume);
+        current.added.put(volume, scene);
+      }
+      if (construct && !constructing()) {
+        construct();
+      }
+    } else {
+      update(insert(snapshot.get().root, Dimension.X, Comparison.MIN, volume, scene));
     }
+    version++;
+    invalidateSections(volume);
   }
 
   public Collection<Volume> all() {
@@ -356,24 +1015,84 @@ public class VolumeTree {
    * Remove a volume from the tree.
    *
    * @param volume    the volume
-   * @param construct whether to construct the entire tree again. If this is called multiple
-   *                  times consecutively, this should be false and then this stucture should
-   *                  be rebuilt again manually with {@link #construct()}
+   * @param construct whether to bring the tree up to date. The volume is removed in place
+   *                  and the entire tree is only constructed again if it has degraded.
+   *                  If this is called multiple times consecutively, this should be false
+   *                  and then this stucture should be rebuilt again manually with {@link #construct()}
    * @return the removed volume (the input) or null if nothing was removed
    */
-  public Volume remove(Volume volume, boolean construct) {
-    Volume toRemove = volumes.containsKey(volume) ? volume : null;
-    this.volumes.remove(volume);
-    if (construct) {
-      construct();
+  public synchronized Volume remove(Volume volume, boolean construct) {
+    if (volumes.remove(volume) == null) {
+      return null;
+    }
+    if (constructing()) {
+      pending.add(new AbstractMap.SimpleImmutableEntry<>(volume, null));
+    }
+    if (!construct || overlaid()) {
+      Snapshot current = snapshot.get();
+      if (current != null && current.added.remove(volume) == null) {
+        current.removed.add(volume);
+      }
+      if (construct && !constructing()) {
+        construct();
+      }
+    } else {
+      update(delete(snapshot.get().root, Dimension.X, Comparison.MIN, volume));
+    }
+    version++;
+    invalidateSections(volume);
+    return volume;
+  }
+
+  private void invalidateSections(Volume volume) {
+    ChunkSectionIndex currentSections = sections;
+    if (currentSections != null) {
+      currentSections.invalidate(volume);
     }
-    return toRemove;
   }
 
   enum Comparison {
     MIN, MAX
   }
 
+  /**
+   * A strategy with which to construct a {@link VolumeTree}.
+   */
+  public enum Strategy {
+    /**
+     * Divide the volumes in half at every node, alternating between dimensions.
+     * This is quick and works well when volumes are of similar sizes.
+     */
+    MEDIAN,
+    /**
+     * Choose the division at every node which minimizes the expected amount of volumes
+     * tested per query. This takes longer, but copes much better with volumes of
+     * very different sizes.
+     */
+    COST
+  }
+
+  /**
+   * A consistent view of the tree. The root never changes, but the overlay of
+   * modifications which have not been applied to the root may grow while this
+   * snapshot is current.
+   */
+  private static class Snapshot {
+    final Node root;
+    final Map<Volume, Scene> added;
+    final Set<Volume> removed;
+    volatile FlattenedVolumeTree flattened;
+    final AtomicInteger queries = new AtomicInteger();
+
+    Snapshot(Node root, FlattenedVolumeTree flattened, Map<Volume, Scene> added, Set<Volume> removed) {
+      this.root = root;
+      this.flattened = flattened;
+      this.added = added;
+      this.removed = removed;
+    }
+
+  }
+
   /**
    * A node in the volume tree. It returns volumes that contain the given
    * coordinates.
@@ -382,6 +1101,74 @@ public class VolumeTree {
     abstract Set<Volume> findVolumes(float minX, float minY, float minZ,
                                      float maxX, float maxY, float maxZ,
                                      boolean maxInclusive);
+
+    abstract Set<Scene> findScenes(float minX, float minY, float minZ,
+                                   float maxX, float maxY, float maxZ,
+                                   boolean maxInclusive,
+                                   Set<Volume> excluded);
+
+    /**
+     * The amount of dividing levels below this node.
+     *
+     * @return the height
+     */
+    int height() {
+      return 0;
+    }
+
+    /**
+     * The amount of dividing nodes in the subtree at this node.
+     *
+     * @return the size
+     */
+    int size() {
+      return 0;
+    }
+
+    /**
+     * The sum of the amount of volumes held by each leaf under this node.
+     * Volumes may be counted multiple times if they are held by multiple leaves.
+     *
+     * @return the amount of leaf entries
+     */
+    int entries() {
+      return 0;
+    }
+
+    /**
+     * The largest amount of volumes held by any single leaf under this node.
+     *
+     * @return the maximum leaf occupancy
+     */
+    int maxOccupancy() {
+      return 0;
+    }
+
+    /**
+     * The amount of leaves under this node.
+     *
+     * @return the amount of leaves
+     */
+    int leaves() {
+      return 0;
+    }
+
+    /**
+     * Collect all volumes under this node whose circumscribed cuboids overlap the given cuboid.
+     *
+     * @param minX  the minimum X value
+     * @param minY  the minimum Y value
+     * @param minZ  the minimum Z value
+     * @param maxX  the maximum X value
+     * @param maxY  the maximum Y value
+     * @param maxZ  the maximum Z value
+     * @param found the map in which to collect the volumes and their scenes
+     */
+    void findOverlapping(float minX, float minY, float minZ,
+                         float maxX, float maxY, float maxZ,
+                         Map<Volume, Scene> found) {
+      // nothing by default
+    }
   }
 
   /**
@@ -394,6 +1181,14 @@ public class VolumeTree {
                             boolean maxInclusive) {
       return new HashSet<>();
     }
+
+    @Override
+    Set<Scene> findScenes(float minX, float minY, float minZ,
+                          float maxX, float maxY, float maxZ,
+                          boolean maxInclusive,
+                          Set<Volume> excluded) {
+      return new HashSet<>();
+    }
   }
 
   /**
@@ -406,6 +1201,118 @@ public class VolumeTree {
     protected final float divider;
     protected final Node left;
     protected final Node right;
+    private final int height;
+    private final int size;
+    private final int entries;
+    private final int maxOccupancy;
+    private final int leaves;
+
+    protected DimensionDivider(float divider, Node left, Node right) {
+      this.divider = divider;
+      this.left = left;
+      this.right = right;
+      this.height = 1 + Math.max(left.height(), right.height());
+      this.size = 1 + left.size() + right.size();
+      this.entries = left.entries() + right.entries();
+      this.maxOccupancy = Math.max(left.maxOccupancy(), right.maxOccupancy());
+      this.leaves = left.leaves() + right.leaves();
+    }
+
+    /**
+     * Copy this divider with new children.
+     *
+     * @param left  the new left child
+     * @param right the new right child
+     * @return the copy
+     */
+    abstract DimensionDivider withChildren(Node left, Node right);
+
+    /**
+     * The dimension along which this node divides volumes.
+     *
+     * @return the dimension
+     */
+    abstract Dimension dimension();
+
+    /**
+     * Whether this node divides volumes by their minimum or maximum values.
+     *
+     * @return the comparison
+     */
+    abstract Comparison comparison();
+
+    /**
+     * Choose the child in which to continue the search.
+     *
+     * @param minX         the minimum X value
+     * @param minY         the minimum Y value
+     * @param minZ         the minimum Z value
+     * @param maxX         the maximum X value
+     * @param maxY         the maximum Y value
+     * @param maxZ         the maximum Z value
+     * @param maxInclusive whether the maximum boundaries are inclusive
+     * @return the child
+     */
+    abstract Node child(float minX, float minY, float minZ,
+                        float maxX, float maxY, float maxZ,
+                        boolean maxInclusive);
+
+    @Override
+    Set<Volume> findVolumes(float minX, float minY, float minZ,
+                            float maxX, float maxY, float maxZ,
+                            boolean maxInclusive) {
+      return child(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive)
+          .findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+    }
+
+    @Override
+    Set<Scene> findScenes(float minX, float minY, float minZ,
+                          float maxX, float maxY, float maxZ,
+                          boolean maxInclusive,
+                          Set<Volume> excluded) {
+      return child(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive)
+          .findScenes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive, excluded);
+    }
+
+    @Override
+    int height() {
+      return height;
+    }
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    int entries() {
+      return entries;
+    }
+
+    @Override
+    int maxOccupancy() {
+      return maxOccupancy;
+    }
+
+    @Override
+    int leaves() {
+      return leaves;
+    }
+
+    @Override
+    void findOverlapping(float minX, float minY, float minZ,
+                         float maxX, float maxY, float maxZ,
+                         Map<Volume, Scene> found) {
+      // The cuboid may reach into both children, just like a volume
+      float min = coordinate(dimension(), minX, minY, minZ);
+      float max = coordinate(dimension(), maxX, maxY, maxZ);
+      if (comparison() == Comparison.MIN ? min < divider : min <= divider) {
+        left.findOverlapping(minX, minY, minZ, maxX, maxY, maxZ, found);
+      }
+      if (comparison() == Comparison.MIN ? max >= divider : max > divider) {
+        right.findOverlapping(minX, minY, minZ, maxX, maxY, maxZ, found);
+      }
+    }
   }
 
   /**
@@ -418,13 +1325,28 @@ public class VolumeTree {
     }
 
     @Override
-    Set<Volume> findVolumes(float minX, float minY, float minZ,
-                            float maxX, float maxY, float maxZ,
-                            boolean maxInclusive) {
+    DimensionDivider withChildren(Node left, Node right) {
+      return new DimensionDividerMinX(divider, left, right);
+    }
+
+    @Override
+    Dimension dimension() {
+      return Dimension.X;
+    }
+
+    @Override
+    Comparison comparison() {
+      return Comparison.MIN;
+    }
+
+    @Override
+    Node child(float minX, float minY, float minZ,
+               float maxX, float maxY, float maxZ,
+               boolean maxInclusive) {
       if (maxX < divider || (maxInclusive && maxX == divider)) {
-        return left.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return left;
       } else {
-        return right.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return right;
       }
     }
   }
@@ -439,13 +1361,100 @@ public class VolumeTree {
     }
 
     @Override
-    Set<Volume> findVolumes(float minX, float minY, float minZ,
-                            float maxX, float maxY, float maxZ,
-                            boolean maxInclusive) {
+    DimensionDivider withChildren(Node left, Node right) {
+      return new DimensionDividerMaxX(divider, left, right);
+    }
+
+    @Override
+    Dimension dimension() {
+      return Dimension.X;
+    }
+
+    @Override
+    Comparison comparison() {
+      return Comparison.MAX;
+    }
+
+    @Override
+    Node child(float minX, float minY, float minZ,
+               float maxX, float maxY, float maxZ,
+               boolean maxInclusive) {
       if (minX <= divider) {
-        return left.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return left;
+      } else {
+        return right;
+      }
+    }
+  }
+
+  /**
+   * A dividing node which represents a division for
+   * the minimum y value of {@link Cuboid}s.
+   */
+  protected static class DimensionDividerMinY extends DimensionDivider {
+    public DimensionDividerMinY(float divider, Node left, Node right) {
+      super(divider, left, right);
+    }
+
+    @Override
+    DimensionDivider withChildren(Node left, Node right) {
+      return new DimensionDividerMinY(divider, left, right);
+    }
+
+    @Override
+    Dimension dimension() {
+      return Dimension.Y;
+    }
+
+    @Override
+    Comparison comparison() {
+      return Comparison.MIN;
+    }
+
+    @Override
+    Node child(float minX, float minY, float minZ,
+               float maxX, float maxY, float maxZ,
+               boolean maxInclusive) {
+      if (maxY < divider || (maxInclusive && maxY == divider)) {
+        return left;
       } else {
-        return right.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return right;
+      }
+    }
+  }
+
+  /**
+   * A dividing node which represents a division for
+   * the maximum y value of {@link Cuboid}s.
+   */
+  protected static class DimensionDividerMaxY extends DimensionDivider {
+    public DimensionDividerMaxY(float divider, Node left, Node right) {
+      super(divider, left, right);
+    }
+
+    @Override
+    DimensionDivider withChildren(Node left, Node right) {
+      return new DimensionDividerMaxY(divider, left, right);
+    }
+
+    @Override
+    Dimension dimension() {
+      return Dimension.Y;
+    }
+
+    @Override
+    Comparison comparison() {
+      return Comparison.MAX;
+    }
+
+    @Override
+    Node child(float minX, float minY, float minZ,
+               float maxX, float maxY, float maxZ,
+               boolean maxInclusive) {
+      if (minY <= divider) {
+        return left;
+      } else {
+        return right;
       }
     }
   }
@@ -460,13 +1469,28 @@ public class VolumeTree {
     }
 
     @Override
-    Set<Volume> findVolumes(float minX, float minY, float minZ,
-                            float maxX, float maxY, float maxZ,
-                            boolean maxInclusive) {
+    DimensionDivider withChildren(Node left, Node right) {
+      return new DimensionDividerMinZ(divider, left, right);
+    }
+
+    @Override
+    Dimension dimension() {
+      return Dimension.Z;
+    }
+
+    @Override
+    Comparison comparison() {
+      return Comparison.MIN;
+    }
+
+    @Override
+    Node child(float minX, float minY, float minZ,
+               float maxX, float maxY, float maxZ,
+               boolean maxInclusive) {
       if (maxZ < divider || (maxInclusive && maxZ == divider)) {
-        return left.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return left;
       } else {
-        return right.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return right;
       }
     }
   }
@@ -481,13 +1505,28 @@ public class VolumeTree {
     }
 
     @Override
-    Set<Volume> findVolumes(float minX, float minY, float minZ,
-                            float maxX, float maxY, float maxZ,
-                            boolean maxInclusive) {
+    DimensionDivider withChildren(Node left, Node right) {
+      return new DimensionDividerMaxZ(divider, left, right);
+    }
+
+    @Override
+    Dimension dimension() {
+      return Dimension.Z;
+    }
+
+    @Override
+    Comparison comparison() {
+      return Comparison.MAX;
+    }
+
+    @Override
+    Node child(float minX, float minY, float minZ,
+               float maxX, float maxY, float maxZ,
+               boolean maxInclusive) {
       if (minZ <= divider) {
-        return left.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return left;
       } else {
-        return right.findVolumes(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+        return right;
       }
     }
   }
@@ -500,23 +1539,76 @@ public class VolumeTree {
    */
   protected static class ViabilityLeaf extends Node {
 
-    final Set<Volume> viable = new HashSet<>();
+    final Map<Volume, Scene> viable;
+
+    ViabilityLeaf(Map<Volume, Scene> viable) {
+      this.viable = Collections.unmodifiableMap(viable);
+    }
+
+    @Override
+    int entries() {
+      return viable.size();
+    }
+
+    @Override
+    int maxOccupancy() {
+      return viable.size();
+    }
 
-    private ViabilityLeaf(Set<Volume> viable) {
-      this.viable.addAll(viable);
+    @Override
+    int leaves() {
+      return 1;
+    }
+
+    @Override
+    void findOverlapping(float minX, float minY, float minZ,
+                         float maxX, float maxY, float maxZ,
+                         Map<Volume, Scene> found) {
+      viable.forEach((volume, scene) -> {
+        if (overlaps(volume, minX, minY, minZ, maxX, maxY, maxZ)) {
+          found.put(volume, scene);
+        }
+      });
     }
 
     @Override
     Set<Volume> findVolumes(float minX, float minY, float minZ,
                             float maxX, float maxY, float maxZ,
                             boolean maxInclusive) {
-      return viable.stream().filter(volume -> {
-        if (minX == maxX && minY == maxY && minZ == maxZ) {
-          return volume.containsPoint(minX, minY, minZ);
-        } else {
-          return volume.containsCuboid(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
-        }
-      }).collect(Collectors.toSet());
+      return viable.keySet().stream().filter(volume ->
+          contains(volume, minX, minY, minZ, maxX, maxY, maxZ, maxInclusive)
+      ).collect(Collectors.toSet());
+    }
+
+    @Override
+    Set<Scene> findScenes(float minX, float minY, float minZ,
+                          float maxX, float maxY, float maxZ,
+                          boolean maxInclusive,
+                          Set<Volume> excluded) {
+      return viable.entrySet().stream().filter(entry ->
+          !excluded.contains(entry.getKey())
+              && contains(entry.getKey(), minX, minY, minZ, maxX, maxY, maxZ, maxInclusive)
+      ).map(Map.Entry::getValue).collect(Collectors.toSet());
+    }
+
+    static boolean overlaps(Volume volume,
+                            float minX, float minY, float minZ,
+                            float maxX, float maxY, float maxZ) {
+      Cuboid bounds = volume.circumscribed();
+      return bounds.minX() <= maxX && bounds.maxX() >= minX
+          && bounds.minY() <= maxY && bounds.maxY() >= minY
+          && bounds.minZ() <= maxZ && bounds.maxZ() >= minZ;
+    }
+
+    static boolean contains(Volume volume,
+                            float minX, float minY, float minZ,
+                            float maxX, float maxY, float maxZ,
+                            boolean maxInclusive) {
+      if (minX == maxX && minY == maxY && minZ == maxZ) {
+        return volume.containsPoint(minX, minY, minZ);
+      } else {
+        return volume.containsCuboid(minX, minY, minZ, maxX, maxY, maxZ, maxInclusive);
+      }
     }
   }
 
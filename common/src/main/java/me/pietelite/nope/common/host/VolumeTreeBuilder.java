@@ -0,0 +1,408 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.host;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import me.pietelite.nope.common.Nope;
+import me.pietelite.nope.common.math.Cuboid;
+import me.pietelite.nope.common.math.Dimension;
+import me.pietelite.nope.common.math.Volume;
+
+/**
+ * Constructs the nodes of a {@link VolumeTree} from a fixed set of volumes.
+ *
+ * <p>The volumes are sorted once by each of their six bounds up front. Every subset
+ * of volumes considered during construction keeps its volumes in all six of these
+ * orders, and dividing a subset just filters each order, so no node has to sort
+ * its volumes again. When run within a {@link java.util.concurrent.ForkJoinPool},
+ * large subsets have their two sides constructed in parallel.
+ */
+final class VolumeTreeBuilder {
+
+  /**
+   * The amount of volumes a subset must have before its sides are constructed in parallel.
+   */
+  static final int FORK_THRESHOLD = 2048;
+
+  private static final int KEYS = Dimension.values().length * 2;
+
+  private final Volume[] volumes;
+  private final Scene[] scenes;
+  // The bounds of every volume, indexed by the key of the bound and then by the volume
+  private final float[][] bounds;
+
+  /**
+   * Generic constructor.
+   *
+   * @param scenes the volumes to construct a tree from, with their scenes
+   */
+  VolumeTreeBuilder(Map<Volume, Scene> scenes) {
+    int count = scenes.size();
+    this.volumes = new Volume[count];
+    this.scenes = new Scene[count];
+    this.bounds = new float[KEYS][count];
+    int index = 0;
+    for (Map.Entry<Volume, Scene> entry : scenes.entrySet()) {
+      volumes[index] = entry.getKey();
+      this.scenes[index] = entry.getValue();
+      Cuboid cuboid = entry.getKey().circumscribed();
+      for (Dimension dimension : Dimension.values()) {
+        bounds[key(dimension, VolumeTree.Comparison.MIN)][index] = VolumeTree.min(cuboid, dimension);
+        bounds[key(dimension, VolumeTree.Comparison.MAX)][index] = VolumeTree.max(cuboid, dimension);
+      }
+      index++;
+    }
+  }
+
+  /**
+   * The index of a bound, which is the same as the type of the divider which
+   * divides by that bound.
+   */
+  private static int key(Dimension dimension, VolumeTree.Comparison comparison) {
+    return dimension.ordinal() * 2 + comparison.ordinal();
+  }
+
+  /**
+   * Construct a tree with the given strategy.
+   *
+   * @param strategy the strategy
+   * @return the root of the tree
+   */
+  VolumeTree.Node construct(VolumeTree.Strategy strategy) {
+    if (strategy == VolumeTree.Strategy.MEDIAN) {
+      return constructByMedian(Dimension.X, VolumeTree.Comparison.MIN, 0);
+    }
+    float[] lower = new float[Dimension.values().length];
+    float[] upper = new float[Dimension.values().length];
+    Arrays.fill(lower, Nope.WORLD_RADIUS);
+    Arrays.fill(upper, -Nope.WORLD_RADIUS);
+    for (Dimension dimension : Dimension.values()) {
+      int axis = dimension.ordinal();
+      float[] mins = bounds[key(dimension, VolumeTree.Comparison.MIN)];
+      float[] maxes = bounds[key(dimension, VolumeTree.Comparison.MAX)];
+      for (int i = 0; i < volumes.length; i++) {
+        // Volumes may reach infinitely far, so only consider the region in which they can be queried
+        lower[axis] = Math.min(lower[axis], Math.max(mins[i], -Nope.WORLD_RADIUS));
+        upper[axis] = Math.max(upper[axis], Math.min(maxes[i], Nope.WORLD_RADIUS));
+      }
+    }
+    return constructByCost(lower, upper, 0);
+  }
+
+  /**
+   * Construct a tree by dividing at the median bound, alternating through
+   * the dimensions and comparisons like {@link VolumeTree} does on insertion.
+   *
+   * @param dimension      the dimension by which to divide first
+   * @param comparison     the comparison by which to divide first
+   * @param unchangedCount the amount of divisions above which failed to separate any volumes
+   * @return the root of the tree
+   */
+  VolumeTree.Node constructByMedian(Dimension dimension, VolumeTree.Comparison comparison,
+                                    int unchangedCount) {
+    return constructByMedian(presort(), dimension, comparison, unchangedCount);
+  }
+
+  /**
+   * Construct a tree by choosing the division which minimizes the expected
+   * amount of volumes a query must test.
+   *
+   * @param lower the lower bounds of the region, indexed by dimension
+   * @param upper the upper bounds of the region, indexed by dimension
+   * @param depth the depth of the tree within some larger tree
+   * @return the root of the tree
+   */
+  VolumeTree.Node constructByCost(float[] lower, float[] upper, int depth) {
+    return constructByCost(presort(), lower, upper, depth);
+  }
+
+  private int[][] presort() {
+    int[][] orders = new int[KEYS][];
+    if (volumes.length < FORK_THRESHOLD || !ForkJoinTask.inForkJoinPool()) {
+      for (int key = 0; key < KEYS; key++) {
+        orders[key] = sorted(bounds[key]);
+      }
+      return orders;
+    }
+    List<ForkJoinTask<?>> sorts = new ArrayList<>(KEYS);
+    for (int key = 0; key < KEYS; key++) {
+      int k = key;
+      sorts.add(ForkJoinTask.adapt(() -> {
+        orders[k] = sorted(bounds[k]);
+      }));
+    }
+    ForkJoinTask.invokeAll(sorts);
+    return orders;
+  }
+
+  /**
+   * Sort the indices of the given values by their values, breaking ties by index.
+   */
+  private static int[] sorted(float[] values) {
+    long[] packed = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      // Flip the magnitude of negative floats so their bits order the same way as their values
+      int bits = Float.floatToIntBits(values[i]);
+      bits ^= (bits >> 31) & 0x7fffffff;
+      packed[i] = ((long) bits << 32) | i;
+    }
+    Arrays.sort(packed);
+    int[] order = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      order[i] = (int) packed[i];
+    }
+    return order;
+  }
+
+  private VolumeTree.Node constructByMedian(int[][] orders,
+                                            Dimension dimension,
+                                            VolumeTree.Comparison comparison,
+                                            int unchangedCount) {
+    int count = orders[0].length;
+
+    if (count == 0) {
+      return new VolumeTree.EmptyNode();
+    }
+
+    if (count == 1) {
+      return leaf(orders);
+    }
+
+    if (dimension == Dimension.Y) {
+      if (unchangedCount >= VolumeTree.VERTICAL_ATTEMPTS) {
+        return leaf(orders);
+      }
+    } else if (unchangedCount >= VolumeTree.HORIZONTAL_ATTEMPTS) {
+      // These volumes all overlap horizontally (like the floors of a building),
+      // so try to tell them apart by their heights instead
+      return constructByMedian(orders, Dimension.Y, VolumeTree.Comparison.MIN, 0);
+    }
+
+    int[] order = orders[key(dimension, comparison)];
+    float[] values = bounds[key(dimension, comparison)];
+    int divIndex = count / 2;
+    float divider;
+    if (comparison == VolumeTree.Comparison.MIN) {
+      while (divIndex > 0 && values[order[divIndex]] == values[order[divIndex - 1]]) {
+        divIndex--;
+      }
+      divider = values[order[divIndex]];
+    } else {
+      while (divIndex < count - 1 && values[order[divIndex]] == values[order[divIndex - 1]]) {
+        divIndex++;
+      }
+      divider = values[order[divIndex - 1]];
+    }
+    int[][] leftOrders = left(orders, divider, dimension, comparison);
+    int[][] rightOrders = right(orders, divider, dimension, comparison);
+
+    // Only the side which may hold volumes from both sides of the divider can fail to separate any
+    int unchangedLeft = comparison == VolumeTree.Comparison.MAX && leftOrders[0].length == count
+        ? unchangedCount + 1
+        : 0;
+    int unchangedRight = comparison == VolumeTree.Comparison.MIN && rightOrders[0].length == count
+        ? unchangedCount + 1
+        : 0;
+    Dimension nextDimension = VolumeTree.nextDimension(dimension);
+    VolumeTree.Comparison nextComparison = VolumeTree.nextComparison(dimension, comparison);
+    VolumeTree.Node[] children = constructBoth(count,
+        () -> constructByMedian(leftOrders, nextDimension, nextComparison, unchangedLeft),
+        () -> constructByMedian(rightOrders, nextDimension, nextComparison, unchangedRight));
+    return VolumeTree.newDivider(dimension, comparison, divider, children[0], children[1]);
+  }
+
+  private VolumeTree.Node constructByCost(int[][] orders, float[] lower, float[] upper, int depth) {
+    int count = orders[0].length;
+
+    if (count == 0) {
+      return new VolumeTree.EmptyNode();
+    }
+
+    if (count == 1 || depth >= VolumeTree.COST_DEPTH_LIMIT) {
+      return leaf(orders);
+    }
+
+    // Not dividing at all costs one test for every volume
+    float bestCost = count;
+    Dimension bestDimension = null;
+    VolumeTree.Comparison bestComparison = null;
+    float bestDivider = 0;
+    float[] mins = new float[count];
+    float[] maxes = new float[count];
+    for (Dimension dimension : Dimension.values()) {
+      int axis = dimension.ordinal();
+      float extent = upper[axis] - lower[axis];
+      if (!(extent > 0)) {
+        continue;
+      }
+      gather(orders, key(dimension, VolumeTree.Comparison.MIN), mins);
+      gather(orders, key(dimension, VolumeTree.Comparison.MAX), maxes);
+      for (int i = 0; i < count; i++) {
+        float divider = mins[i];
+        if (divider <= lower[axis] || divider >= upper[axis] || (i > 0 && mins[i - 1] == divider)) {
+          continue;
+        }
+        // left holds volumes with min < divider, right holds volumes with max >= divider
+        float cost = divisionCost(divider, lower[axis], upper[axis], i, count - countBelow(maxes, divider));
+        if (cost < bestCost) {
+          bestCost = cost;
+          bestDimension = dimension;
+          bestComparison = VolumeTree.Comparison.MIN;
+          bestDivider = divider;
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        float divider = maxes[i];
+        if (divider <= lower[axis] || divider >= upper[axis] || (i < count - 1 && maxes[i + 1] == divider)) {
+          continue;
+        }
+        // left holds volumes with min <= divider, right holds volumes with max > divider
+        float cost = divisionCost(divider, lower[axis], upper[axis],
+            countBelow(mins, Math.nextUp(divider)), count - 1 - i);
+        if (cost < bestCost) {
+          bestCost = cost;
+          bestDimension = dimension;
+          bestComparison = VolumeTree.Comparison.MAX;
+          bestDivider = divider;
+        }
+      }
+    }
+
+    if (bestDimension == null) {
+      return leaf(orders);
+    }
+
+    int[][] leftOrders = left(orders, bestDivider, bestDimension, bestComparison);
+    int[][] rightOrders = right(orders, bestDivider, bestDimension, bestComparison);
+    int axis = bestDimension.ordinal();
+    float[] leftUpper = upper.clone();
+    leftUpper[axis] = bestDivider;
+    float[] rightLower = lower.clone();
+    rightLower[axis] = bestDivider;
+    VolumeTree.Node[] children = constructBoth(count,
+        () -> constructByCost(leftOrders, lower, leftUpper, depth + 1),
+        () -> constructByCost(rightOrders, rightLower, upper, depth + 1));
+    return VolumeTree.newDivider(bestDimension, bestComparison, bestDivider, children[0], children[1]);
+  }
+
+  /**
+   * Construct the two sides of a division, in parallel if there are enough volumes
+   * and we are running within a pool.
+   */
+  private static VolumeTree.Node[] constructBoth(int count,
+                                                 Supplier<VolumeTree.Node> left,
+                                                 Supplier<VolumeTree.Node> right) {
+    if (count < FORK_THRESHOLD || !ForkJoinTask.inForkJoinPool()) {
+      return new VolumeTree.Node[]{left.get(), right.get()};
+    }
+    ForkJoinTask<VolumeTree.Node> leftTask = ForkJoinTask.adapt(left::get).fork();
+    VolumeTree.Node rightNode = right.get();
+    return new VolumeTree.Node[]{leftTask.join(), rightNode};
+  }
+
+  private int[][] left(int[][] orders, float divider,
+                       Dimension dimension, VolumeTree.Comparison comparison) {
+    // left holds volumes with min < divider, or min <= divider when dividing by maximums
+    return filter(orders, bounds[key(dimension, VolumeTree.Comparison.MIN)],
+        comparison == VolumeTree.Comparison.MIN ? divider : Math.nextUp(divider), true);
+  }
+
+  private int[][] right(int[][] orders, float divider,
+                        Dimension dimension, VolumeTree.Comparison comparison) {
+    // right holds volumes with max >= divider, or max > divider when dividing by maximums
+    return filter(orders, bounds[key(dimension, VolumeTree.Comparison.MAX)],
+        comparison == VolumeTree.Comparison.MIN ? divider : Math.nextUp(divider), false);
+  }
+
+  /**
+   * Keep the volumes whose given bound is below the threshold, or not below it,
+   * in every order.
+   */
+  private static int[][] filter(int[][] orders, float[] values, float threshold, boolean below) {
+    int kept = 0;
+    for (int index : orders[0]) {
+      if (values[index] < threshold == below) {
+        kept++;
+      }
+    }
+    int[][] filtered = new int[KEYS][kept];
+    for (int key = 0; key < KEYS; key++) {
+      int[] order = orders[key];
+      int[] result = filtered[key];
+      int next = 0;
+      for (int index : order) {
+        if (values[index] < threshold == below) {
+          result[next++] = index;
+        }
+      }
+    }
+    return filtered;
+  }
+
+  private void gather(int[][] orders, int key, float[] sorted) {
+    int[] order = orders[key];
+    float[] values = bounds[key];
+    for (int i = 0; i < order.length; i++) {
+      sorted[i] = values[order[i]];
+    }
+  }
+
+  private VolumeTree.Node leaf(int[][] orders) {
+    Map<Volume, Scene> viable = new HashMap<>();
+    for (int index : orders[0]) {
+      viable.put(volumes[index], scenes[index]);
+    }
+    return new VolumeTree.ViabilityLeaf(viable);
+  }
+
+  private static float divisionCost(float divider, float lower, float upper, int leftCount, int rightCount) {
+    return VolumeTree.DIVIDER_COST
+        + (leftCount * (divider - lower) + rightCount * (upper - divider)) / (upper - lower);
+  }
+
+  /**
+   * Count the values in a sorted array which are less than the given value.
+   */
+  private static int countBelow(float[] sorted, float value) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sorted[middle] < value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.host;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import me.pietelite.nope.common.math.Cuboid;
+import me.pietelite.nope.common.math.Dimension;
+import me.pietelite.nope.common.math.Volume;
+
+/**
+ * Reads and writes the nodes of a {@link VolumeTree} in a compact binary format,
+ * so a tree doesn't have to be constructed again when its volumes haven't changed.
+ *
+ * <p>Volumes don't keep their ids between restarts, so every volume is identified by
+ * its scene, its type and its bounds instead, which is all that determines where it
+ * belongs in the tree. A hash of all of these guards against reading a tree which was
+ * written for different volumes.
+ */
+final class VolumeTreeSerializer {
+
+  private static final int MAGIC = 0x4e4f5045;
+  private static final int FORMAT_VERSION = 1;
+  private static final byte LEAF = 6;
+  private static final byte EMPTY = 7;
+
+  private static final Comparator<Map.Entry<Volume, Scene>> CANONICAL_ORDER =
+      Comparator.<Map.Entry<Volume, Scene>, String>comparing(entry -> entry.getValue().scope())
+          .thenComparing(entry -> entry.getValue().name())
+          .thenComparing(entry -> entry.getKey().getClass().getName())
+          .thenComparing(entry -> bounds(entry.getKey()), VolumeTreeSerializer::compareBounds);
+
+  private VolumeTreeSerializer() {
+  }
+
+  /**
+   * Write a tree.
+   *
+   * @param out      the stream to write to
+   * @param root     the root of the tree
+   * @param volumes  all volumes in the tree, with their scenes
+   * @param strategy the strategy with which the tree was constructed
+   * @throws IOException if the stream fails
+   */
+  static void write(DataOutputStream out, VolumeTree.Node root,
+                    Map<Volume, Scene> volumes, VolumeTree.Strategy strategy) throws IOException {
+    List<Volume> ordered = canonicalOrder(volumes);
+    Map<Volume, Integer> ordinals = new IdentityHashMap<>();
+    for (int i = 0; i < ordered.size(); i++) {
+      ordinals.put(ordered.get(i), i);
+    }
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.write(contentHash(ordered, volumes, strategy));
+    writeNode(out, root, ordinals);
+  }
+
+  /**
+   * Read a tree, if it was written for the same volumes.
+   *
+   * @param in       the stream to read from
+   * @param volumes  all volumes which should be in the tree, with their scenes
+   * @param strategy the strategy with which the tree should have been constructed
+   * @return the root of the tree, or null if the stored tree is for different volumes
+   * @throws IOException if the stream fails
+   */
+  static VolumeTree.Node read(DataInputStream in,
+                              Map<Volume, Scene> volumes, VolumeTree.Strategy strategy) throws IOException {
+    if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+      return null;
+    }
+    List<Volume> ordered = canonicalOrder(volumes);
+    byte[] hash = new byte[32];
+    in.readFully(hash);
+    if (!Arrays.equals(hash, contentHash(ordered, volumes, strategy))) {
+      return null;
+    }
+    return readNode(in, ordered, volumes);
+  }
+
+  private static void writeNode(DataOutputStream out, VolumeTree.Node node,
+                                Map<Volume, Integer> ordinals) throws IOException {
+    if (node instanceof VolumeTree.DimensionDivider) {
+      VolumeTree.DimensionDivider divider = (VolumeTree.DimensionDivider) node;
+      out.writeByte(divider.dimension().ordinal() * 2 + divider.comparison().ordinal());
+      out.writeFloat(divider.divider);
+      writeNode(out, divider.left, ordinals);
+      writeNode(out, divider.right, ordinals);
+    } else if (node instanceof VolumeTree.ViabilityLeaf) {
+      Map<Volume, Scene> viable = ((VolumeTree.ViabilityLeaf) node).viable;
+      out.writeByte(LEAF);
+      out.writeInt(viable.size());
+      for (Volume volume : viable.keySet()) {
+        out.writeInt(ordinals.get(volume));
+      }
+    } else {
+      out.writeByte(EMPTY);
+    }
+  }
+
+  private static VolumeTree.Node readNode(DataInputStream in, List<Volume> ordered,
+                                          Map<Volume, Scene> volumes) throws IOException {
+    byte type = in.readByte();
+    if (type == EMPTY) {
+      return new VolumeTree.EmptyNode();
+    }
+    if (type == LEAF) {
+      int count = in.readInt();
+      Map<Volume, Scene> viable = new HashMap<>();
+      for (int i = 0; i < count; i++) {
+        int ordinal = in.readInt();
+        if (ordinal < 0 || ordinal >= ordered.size()) {
+          throw new IOException("Unknown volume " + ordinal);
+        }
+        Volume volume = ordered.get(ordinal);
+        viable.put(volume, volumes.get(volume));
+      }
+      return new VolumeTree.ViabilityLeaf(viable);
+    }
+    if (type < 0 || type > LEAF) {
+      throw new IOException("Unknown node type " + type);
+    }
+    float divider = in.readFloat();
+    VolumeTree.Node left = readNode(in, ordered, volumes);
+    VolumeTree.Node right = readNode(in, ordered, volumes);
+    return VolumeTree.newDivider(Dimension.values()[type / 2],
+        VolumeTree.Comparison.values()[type % 2],
+        divider, left, right);
+  }
+
+  private static List<Volume> canonicalOrder(Map<Volume, Scene> volumes) {
+    List<Map.Entry<Volume, Scene>> entries = new ArrayList<>(volumes.entrySet());
+    entries.sort(CANONICAL_ORDER);
+    List<Volume> ordered = new ArrayList<>(entries.size());
+    entries.forEach(entry -> ordered.add(entry.getKey()));
+    return ordered;
+  }
+
+  private static byte[] contentHash(List<Volume> ordered, Map<Volume, Scene> volumes,
+                                    VolumeTree.Strategy strategy) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+    digest.update(strategy.name().getBytes(StandardCharsets.UTF_8));
+    for (Volume volume : ordered) {
+      Scene scene = volumes.get(volume);
+      digest.update((scene.scope() + ':' + scene.name() + ':' + volume.getClass().getName() + ':')
+          .getBytes(StandardCharsets.UTF_8));
+      ByteBuffer buffer = ByteBuffer.allocate(Float.BYTES * 6);
+      for (float bound : bounds(volume)) {
+        buffer.putFloat(bound);
+      }
+      digest.update(buffer.array());
+    }
+    return digest.digest();
+  }
+
+  private static float[] bounds(Volume volume) {
+    Cuboid cuboid = volume.circumscribed();
+    return new float[] {cuboid.minX(), cuboid.minY(), cuboid.minZ(),
+        cuboid.maxX(), cuboid.maxY(), cuboid.maxZ()};
+  }
+
+  private static int compareBounds(float[] first, float[] second) {
+    for (int i = 0; i < first.length; i++) {
+      int comparison = Float.compare(first[i], second[i]);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return 0;
+  }
+
+}
@@ -213,6 +213,13 @@ public class Cuboid extends Volume {
         && z < this.maxZ;
   }
 
+  @Override
+  public boolean excludesCuboid(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+    return this.minX >= maxX || this.maxX <= minX
+        || this.minY >= maxY || this.maxY <= minY
+        || this.minZ >= maxZ || this.maxZ <= minZ;
+  }
+
   @Override
   public boolean containsCuboid(float minX, float minY, float minZ,
                                 float maxX, float maxY, float maxZ,
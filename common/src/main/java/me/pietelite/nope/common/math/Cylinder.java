@@ -194,10 +194,10 @@ public class Cylinder extends Volume {
     if (minY < this.minY || (maxInclusive ? (maxY > this.maxY) : (maxY >= this.maxY))) {
       return false;
     }
-    return (posX - minX) * (posX - minX) <= radiusSquared
-        || (posX - maxY) * (posX - maxY) <= radiusSquared
-        || (posZ - minZ) * (posZ - minZ) <= radiusSquared
-        || (posZ - maxZ) * (posZ - maxZ) <= radiusSquared;
+    // The cuboid is inside if its farthest corner is inside
+    return Math.max((posX - minX) * (posX - minX), (posX - maxX) * (posX - maxX))
+        + Math.max((posZ - minZ) * (posZ - minZ), (posZ - maxZ) * (posZ - maxZ))
+        <= radiusSquared;
   }
 
   @Override
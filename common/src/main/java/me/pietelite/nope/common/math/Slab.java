@@ -58,9 +58,9 @@ public class Slab extends Volume {
     this.maxY = Math.max(y1, y2);
 
     circumscribed = new Cuboid(domain,
-        Float.MIN_VALUE,
+        -Float.MAX_VALUE,
         minY,
-        Float.MIN_VALUE,
+        -Float.MAX_VALUE,
         Float.MAX_VALUE,
         maxY,
         Float.MAX_VALUE);
@@ -99,6 +99,11 @@ public class Slab extends Volume {
         && y < maxY;
   }
 
+  @Override
+  public boolean excludesCuboid(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+    return this.minY >= maxY || this.maxY <= minY;
+  }
+
   @Override
   public boolean containsCuboid(float minX, float minY, float minZ,
                                 float maxX, float maxY, float maxZ,
@@ -150,20 +150,11 @@ public class Sphere extends Volume {
   @Override
   public boolean containsCuboid(float minX, float minY, float minZ,
                                 float maxX, float maxY, float maxZ, boolean maxInclusive) {
-    final float distSquaredX1 = (posX - minX) * (posX - minX);
-    final float distSquaredY1 = (posX - minY) * (posX - minY);
-    final float distSquaredZ1 = (posX - minZ) * (posX - minZ);
-    final float distSquaredX2 = (posX - maxX) * (posX - maxX);
-    final float distSquaredY2 = (posX - maxY) * (posX - maxY);
-    final float distSquaredZ2 = (posX - maxZ) * (posX - maxZ);
-    return distSquaredX1 + distSquaredY1 + distSquaredZ1 <= radiusSquared
-        || distSquaredX2 + distSquaredY1 + distSquaredZ1 <= radiusSquared
-        || distSquaredX1 + distSquaredY2 + distSquaredZ1 <= radiusSquared
-        || distSquaredX1 + distSquaredY1 + distSquaredZ2 <= radiusSquared
-        || distSquaredX2 + distSquaredY2 + distSquaredZ1 <= radiusSquared
-        || distSquaredX2 + distSquaredY1 + distSquaredZ2 <= radiusSquared
-        || distSquaredX1 + distSquaredY2 + distSquaredZ2 <= radiusSquared
-        || distSquaredX2 + distSquaredY2 + distSquaredZ2 <= radiusSquared;
+    // The cuboid is inside if its farthest corner is inside
+    final float distSquaredX = Math.max((posX - minX) * (posX - minX), (posX - maxX) * (posX - maxX));
+    final float distSquaredY = Math.max((posY - minY) * (posY - minY), (posY - maxY) * (posY - maxY));
+    final float distSquaredZ = Math.max((posZ - minZ) * (posZ - minZ), (posZ - maxZ) * (posZ - maxZ));
+    return distSquaredX + distSquaredY + distSquaredZ <= radiusSquared;
   }
 
   @Override
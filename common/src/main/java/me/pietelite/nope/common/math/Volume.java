@@ -128,6 +128,26 @@ public abstract class Volume implements Domained, Expirable {
             && containsPoint(maxX, minY, minZ);
   }
 
+  /**
+   * Whether this volume certainly contains none of the points within a cuboid, where the
+   * cuboid includes its minimum boundaries but not its maximum boundaries, like a block.
+   * By default, this is only known if the cuboid is entirely outside the circumscribed cuboid.
+   *
+   * @param minX the minimum X value
+   * @param minY the minimum Y value
+   * @param minZ the minimum Z value
+   * @param maxX the maximum X value
+   * @param maxY the maximum Y value
+   * @param maxZ the maximum Z value
+   * @return true if no point of the cuboid is in this volume
+   */
+  public boolean excludesCuboid(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+    Cuboid bounds = circumscribed();
+    return bounds.minX() >= maxX || bounds.maxX() < minX
+        || bounds.minY() >= maxY || bounds.maxY() < minY
+        || bounds.minZ() >= maxZ || bounds.maxZ() < minZ;
+  }
+
   /**
    * Whether this volume is internally configured correctly to represent
    * the mathematical construct it's supposed to.
@@ -0,0 +1,321 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.setting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+import me.pietelite.nope.common.api.struct.AltSet;
+import me.pietelite.nope.common.host.Evaluation;
+import me.pietelite.nope.common.host.Host;
+import me.pietelite.nope.common.host.HostedProfile;
+import me.pietelite.nope.common.host.Profile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The evaluation of a {@link SettingKey} on a list of {@link Host}s, compiled down to
+ * the values which may contribute to the result and the {@link Target}s which decide
+ * whether they do. Which values and targets apply doesn't depend on the user, so a plan
+ * may be reused for every user until a host or profile changes, and then an
+ * evaluation only has to test the targets.
+ *
+ * @param <T> the data type
+ */
+public abstract class EvaluationPlan<T> {
+
+  protected final SettingKey<T, ?, ?> key;
+
+  EvaluationPlan(SettingKey<T, ?, ?> key) {
+    this.key = key;
+  }
+
+  /**
+   * Evaluate the setting key for a user.
+   *
+   * @param userUuid the user's uuid
+   * @return the evaluation
+   */
+  public abstract Evaluation<T> evaluate(@Nullable UUID userUuid);
+
+  /**
+   * Evaluate the setting key for a user, like {@link #evaluate(UUID)}, but only
+   * get the result, without keeping a record of how it was found.
+   *
+   * @param userUuid the user's uuid
+   * @return the result
+   */
+  public abstract T result(@Nullable UUID userUuid);
+
+  /**
+   * Gather the values set on the hosts, from the highest priority to the lowest, each
+   * with the {@link Target} which decides whether it applies. A setting without a value only
+   * contributes its target, which then applies to the next value instead.
+   *
+   * @param key      the key
+   * @param hosts    the hosts, ordered by priority
+   * @param present  whether a value is really there
+   * @param terminal whether to stop at the first value without a target
+   * @return the steps
+   */
+  static <T, V extends SettingValue<T>> List<Step<V>> steps(SettingKey<T, V, ?> key,
+                                                            List<Host> hosts,
+                                                            Predicate<V> present,
+                                                            boolean terminal) {
+    List<Step<V>> steps = new ArrayList<>();
+    Target activeTarget = null;
+    ListIterator<Host> hostIterator = hosts.listIterator(hosts.size());
+    while (hostIterator.hasPrevious()) {
+      Host host = hostIterator.previous();
+      List<HostedProfile> profiles = host.allProfiles();
+      ListIterator<HostedProfile> profileIterator = profiles.listIterator(profiles.size());
+      while (profileIterator.hasPrevious()) {
+        HostedProfile hostedProfile = profileIterator.previous();
+        Optional<Setting<T, V>> setting = hostedProfile.profile().get(key);
+        if (!setting.isPresent()) {
+          continue;
+        }
+        if (activeTarget == null) {
+          // Ignore if target has already been specified: the last one takes precedence.
+          activeTarget = hostedProfile.activeTargetFor(key);
+        }
+        V value = setting.get().value();
+        if (value != null && present.test(value)) {
+          steps.add(new Step<>(value, activeTarget, host, hostedProfile.profile()));
+          if (terminal && activeTarget == null) {
+            return steps;
+          }
+          activeTarget = null;
+        }
+      }
+    }
+    return steps;
+  }
+
+  /**
+   * A value which may contribute to the result of an evaluation.
+   *
+   * @param <V> the value type
+   */
+  static final class Step<V> {
+    private final V value;
+    private final Target target;
+    private final Host host;
+    private final Profile profile;
+
+    private Step(V value, Target target, Host host, Profile profile) {
+      this.value = value;
+      this.target = target;
+      this.host = host;
+      this.profile = profile;
+    }
+
+    private boolean test(UUID userUuid, boolean playerRestrictive) {
+      return target == null || target.test(userUuid, playerRestrictive);
+    }
+  }
+
+  /**
+   * The plan for a {@link SettingKey.Unary}, where the first value which applies is the result.
+   * Nothing after the first value without a target is ever needed.
+   *
+   * @param <T> the data type
+   */
+  static final class Unary<T> extends EvaluationPlan<T> {
+
+    private final Step<SettingValue.Unary<T>>[] steps;
+
+    @SuppressWarnings("unchecked")
+    Unary(SettingKey.Unary<T> key, @NotNull List<Host> hosts) {
+      super(key);
+      this.steps = steps(key, hosts, value -> value.get() != null, true).toArray(new Step[0]);
+    }
+
+    @Override
+    public Evaluation<T> evaluate(@Nullable UUID userUuid) {
+      Evaluation<T> evaluation = new Evaluation<>(key);
+      for (Step<SettingValue.Unary<T>> step : steps) {
+        if (step.test(userUuid, key.playerRestrictive())) {
+          evaluation.add(step.host, step.profile, step.value.get());
+          return evaluation;
+        }
+      }
+      return evaluation;
+    }
+
+    @Override
+    public T result(@Nullable UUID userUuid) {
+      for (Step<SettingValue.Unary<T>> step : steps) {
+        if (step.test(userUuid, key.playerRestrictive())) {
+          return step.value.get();
+        }
+      }
+      return key.defaultData();
+    }
+  }
+
+  /**
+   * The plan for a {@link SettingKey.Poly}, where all values which apply are applied
+   * in turn, from the lowest priority to the highest. The values of lowest priority
+   * without targets always apply, so they are applied ahead of time.
+   *
+   * <p>The values are folded into a single copy of the set, because manipulative values
+   * change the set they are applied to, and nothing below the last declarative value
+   * which applies matters. Every stage is only copied when a full evaluation is requested.
+   *
+   * @param <T> the element type
+   * @param <S> the set type
+   */
+  static final class Poly<T, S extends AltSet<T>> extends EvaluationPlan<S> {
+
+    private final SettingKey.Poly<T, S> polyKey;
+    private final Step<SettingValue.Poly<T, S>>[] steps;
+    private final Step<SettingValue.Poly<T, S>>[] constantSteps;
+    private final S constant;
+    private volatile Step<S>[] constantStages;
+
+    @SuppressWarnings("unchecked")
+    Poly(SettingKey.Poly<T, S> key, @NotNull List<Host> hosts) {
+      super(key);
+      this.polyKey = key;
+      List<Step<SettingValue.Poly<T, S>>> all = steps(key, hosts, value -> true, false);
+      int targeted = all.size();
+      while (targeted > 0 && all.get(targeted - 1).target == null) {
+        targeted--;
+      }
+      this.steps = all.subList(0, targeted).toArray(new Step[0]);
+      this.constantSteps = all.subList(targeted, all.size()).toArray(new Step[0]);
+      S folded = fold(constantSteps, 0, key.defaultData());
+      this.constant = folded == key.defaultData() ? key.manager().copySet(folded) : folded;
+    }
+
+    @Override
+    public Evaluation<S> evaluate(@Nullable UUID userUuid) {
+      Evaluation<S> evaluation = new Evaluation<>(key);
+      for (Step<S> stage : constantStages()) {
+        evaluation.add(stage.host, stage.profile, stage.value);
+      }
+
+      // now apply our values in the appropriate order, copying each stage to keep the record
+      int firstApplying = firstApplying(userUuid);
+      S result = constant;
+      for (int i = steps.length - 1; i >= 0; i--) {
+        if (applies(i, firstApplying)) {
+          result = stage(result, steps[i].value);
+          evaluation.add(steps[i].host, steps[i].profile, result);
+        }
+      }
+      return evaluation;
+    }
+
+    @Override
+    public S result(@Nullable UUID userUuid) {
+      return fold(steps, firstApplying(userUuid), constant);
+    }
+
+    /**
+     * Apply the values which apply onto a single copy of the base set, from the last to the first,
+     * starting at the first declarative value which applies, because it replaces all the ones after it.
+     * The base set itself is returned if no values apply.
+     */
+    private S fold(Step<SettingValue.Poly<T, S>>[] steps, int firstApplying, S base) {
+      int last = steps.length - 1;
+      for (int i = 0; i < steps.length; i++) {
+        if (steps[i].value.declarative() && applies(steps, i, firstApplying)) {
+          last = i;
+          base = steps[i].value.applyTo(base);
+          break;
+        }
+      }
+      S result = null;
+      for (int i = last; i >= 0; i--) {
+        if (applies(steps, i, firstApplying)) {
+          if (result == null) {
+            result = polyKey.manager().copySet(base);
+            if (steps[i].value.declarative()) {
+              continue;
+            }
+          }
+          result = steps[i].value.applyTo(result);
+        }
+      }
+      return result == null ? base : result;
+    }
+
+    /**
+     * Apply a value to a copy of the previous stage, leaving the previous stage as it was.
+     */
+    private S stage(S previous, SettingValue.Poly<T, S> value) {
+      if (value.declarative()) {
+        return polyKey.manager().copySet(value.applyTo(previous));
+      }
+      return value.applyTo(polyKey.manager().copySet(previous));
+    }
+
+    /**
+     * Get the stages of the values which always apply, which are only gathered once they're needed.
+     */
+    @SuppressWarnings("unchecked")
+    private Step<S>[] constantStages() {
+      Step<S>[] stages = constantStages;
+      if (stages == null) {
+        stages = new Step[constantSteps.length];
+        S result = polyKey.defaultData();
+        for (int i = constantSteps.length - 1; i >= 0; i--) {
+          Step<SettingValue.Poly<T, S>> step = constantSteps[i];
+          result = stage(result, step.value);
+          stages[constantSteps.length - 1 - i] = new Step<>(result, null, step.host, step.profile);
+        }
+        constantStages = stages;
+      }
+      return stages;
+    }
+
+    private boolean applies(int index, int firstApplying) {
+      return applies(steps, index, firstApplying);
+    }
+
+    private static boolean applies(Step<?>[] steps, int index, int firstApplying) {
+      return index >= firstApplying || steps[index].target == null;
+    }
+
+    /**
+     * Find the first value with a target which applies to the user. Once a target applies,
+     * it applies to every value after it too, and before it, only the values without targets apply.
+     */
+    private int firstApplying(@Nullable UUID userUuid) {
+      for (int i = 0; i < steps.length; i++) {
+        if (steps[i].target != null && steps[i].target.test(userUuid, key.playerRestrictive())) {
+          return i;
+        }
+      }
+      return steps.length;
+    }
+  }
+
+}
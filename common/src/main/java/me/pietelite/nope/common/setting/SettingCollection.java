@@ -24,6 +24,7 @@
 
 package me.pietelite.nope.common.setting;
 
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -35,6 +36,7 @@ import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import me.pietelite.nope.common.Nope;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -65,6 +67,20 @@ public abstract class SettingCollection {
     return keys.contains(key);
   }
 
+  /**
+   * Set the bits of the {@link SettingKey#ordinal()}s of all registered keys
+   * which are set in this collection.
+   *
+   * @param bits the bits to set
+   */
+  public final void markKeys(BitSet bits) {
+    for (SettingKey<?, ?, ?> key : keys) {
+      if (key.ordinal() >= 0) {
+        bits.set(key.ordinal());
+      }
+    }
+  }
+
   @NotNull
   public final Iterator<Setting<?, ?>> iterator() {
     return buildSet().iterator();
@@ -193,6 +209,7 @@ public abstract class SettingCollection {
       keys.add(key);
     }
     this.data.put(key, value);
+    invalidateEvaluations();
     return true;
   }
 
@@ -250,6 +267,7 @@ public abstract class SettingCollection {
       keys.add(key);
     }
     this.targets.put(key, target);
+    invalidateEvaluations();
     return true;
   }
 
@@ -263,6 +281,7 @@ public abstract class SettingCollection {
     boolean changed = keys.remove(key);
     data.remove(key);
     targets.remove(key);
+    invalidateEvaluations();
     return changed;
   }
 
@@ -299,6 +318,11 @@ public abstract class SettingCollection {
     if (!data.containsKey(key) && !targets.containsKey(key)) {
       keys.remove(key);
     }
+    invalidateEvaluations();
+  }
+
+  private void invalidateEvaluations() {
+    Nope.instance().system().invalidateEvaluations();
   }
 
   /**
@@ -337,6 +361,7 @@ public abstract class SettingCollection {
     keys.clear();
     data.clear();
     targets.clear();
+    invalidateEvaluations();
   }
 
   /**
@@ -28,11 +28,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.Stack;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.Getter;
@@ -44,8 +41,6 @@ import me.pietelite.nope.common.api.struct.AltSet;
 import me.pietelite.nope.common.api.struct.Named;
 import me.pietelite.nope.common.host.Evaluation;
 import me.pietelite.nope.common.host.Host;
-import me.pietelite.nope.common.host.HostedProfile;
-import me.pietelite.nope.common.host.Profile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -72,6 +67,11 @@ public abstract class SettingKey<T,
   private final boolean playerRestrictive;
   @Setter
   private boolean functional;
+  /**
+   * The index of this key among all registered keys, or -1 if it isn't registered.
+   * Registered keys are numbered densely from 0, so they can index into arrays and bit sets.
+   */
+  private int ordinal = -1;
 
   SettingKey(String id, @NotNull M manager,
              T defaultData, T naturalData,
@@ -92,8 +92,43 @@ public abstract class SettingKey<T,
     this.playerRestrictive = playerRestrictive;
   }
 
-  public abstract Evaluation<T> extractValue(@NotNull List<Host> hosts,
-                                             @Nullable final UUID userUuid);
+  void ordinal(int ordinal) {
+    this.ordinal = ordinal;
+  }
+
+  /**
+   * Evaluate this key on the given hosts for a user.
+   *
+   * @param hosts    the hosts, ordered by priority
+   * @param userUuid the user's uuid
+   * @return the evaluation
+   */
+  public final Evaluation<T> extractValue(@NotNull List<Host> hosts,
+                                          @Nullable final UUID userUuid) {
+    return compile(hosts).evaluate(userUuid);
+  }
+
+  /**
+   * Evaluate only the result of this key on the given hosts for a user,
+   * without keeping a record of the evaluation process.
+   *
+   * @param hosts    the hosts, ordered by priority
+   * @param userUuid the user's uuid
+   * @return the result
+   */
+  public final T extractResult(@NotNull List<Host> hosts,
+                               @Nullable final UUID userUuid) {
+    return compile(hosts).result(userUuid);
+  }
+
+  /**
+   * Compile the evaluation of this key on the given hosts into a plan,
+   * which may be evaluated for any user until the hosts or their profiles change.
+   *
+   * @param hosts the hosts, ordered by priority
+   * @return the plan
+   */
+  public abstract EvaluationPlan<T> compile(@NotNull List<Host> hosts);
 
   public abstract String type();
 
@@ -236,58 +271,8 @@ public abstract class SettingKey<T,
     }
 
     @Override
-    public Evaluation<T> extractValue(@NotNull List<Host> hosts,
-                                      @Nullable final UUID userUuid) {
-
-      /* Choose a data structure that will optimize searching for highest priority matching */
-      Evaluation<T> evaluation = new Evaluation<>(this);
-      if (hosts.isEmpty()) {
-        return evaluation;
-      }
-
-      Optional<Setting<T, SettingValue.Unary<T>>> currentSetting;
-      Target activeTarget = null;
-      Target currentTarget;
-      T data;
-
-      // Assume targeted until target is set and specifically does not target us
-      ListIterator<Host> hostIterator = hosts.listIterator(hosts.size());
-      Host host;
-      List<HostedProfile> profiles;
-      ListIterator<HostedProfile> profileIterator;
-      HostedProfile currentProfile;
-      while (hostIterator.hasPrevious()) {
-        host = hostIterator.previous();
-        profiles = host.allProfiles();
-        profileIterator = profiles.listIterator(profiles.size());
-        while (profileIterator.hasPrevious()) {
-          currentProfile = profileIterator.previous();
-          currentSetting = currentProfile.profile().get(this);
-          if (!currentSetting.isPresent()) {
-            continue;
-          }
-          currentTarget = currentProfile.activeTargetFor(this);
-          if (currentTarget != null && activeTarget == null) {
-            // Ignore if target has already been specified: the last one takes precedence.
-            activeTarget = currentTarget;
-          }
-          data = currentSetting.get().value().get();
-          if (data != null) {
-            // the active target acts here
-            if (activeTarget == null || activeTarget.test(userUuid, playerRestrictive())) {
-              evaluation.add(host, currentProfile.profile(), data);
-              return evaluation;
-            } else {
-              // We have found the data which was specifically not targeted.
-              // So, pass through this data value and continue on anew.
-              activeTarget = null;
-            }
-          }
-        }
-      }
-
-      // No more left, so just do default
-      return evaluation;
+    public EvaluationPlan<T> compile(@NotNull List<Host> hosts) {
+      return new EvaluationPlan.Unary<>(this, hosts);
     }
 
     @Override
@@ -376,69 +361,8 @@ public abstract class SettingKey<T,
     }
 
     @Override
-    public Evaluation<S> extractValue(@NotNull List<Host> hosts,
-                                      @Nullable UUID userUuid) {
-      /* Choose a data structure that will optimize searching for highest priority matching */
-      Evaluation<S> evaluation = new Evaluation<>(this);
-      if (hosts.isEmpty()) {
-        return evaluation;
-      }
-
-      Optional<Setting<S, SettingValue.Poly<T, S>>> currentSetting;
-      Target activeTarget = null;
-      Target currentTarget;
-      SettingValue.Poly<T, S> value;
-
-      // Setup structures for final evaluation
-      Stack<Host> valuedHosts = new Stack<>();
-      Stack<Profile> valuedProfiles = new Stack<>();
-      Stack<SettingValue.Poly<T, S>> values = new Stack<>();
-
-      // Assume targeted until target is set and specifically does not target us
-      ListIterator<Host> hostIterator = hosts.listIterator(hosts.size());
-      Host host;
-      List<HostedProfile> profiles;
-      ListIterator<HostedProfile> profileIterator;
-      HostedProfile currentProfile;
-      while (hostIterator.hasPrevious()) {
-        host = hostIterator.previous();
-        profiles = host.allProfiles();
-        profileIterator = profiles.listIterator(profiles.size());
-        while (profileIterator.hasPrevious()) {
-          currentProfile = profileIterator.previous();
-          currentSetting = currentProfile.profile().get(this);
-          if (!currentSetting.isPresent()) {
-            continue;
-          }
-          currentTarget = currentProfile.activeTargetFor(this);
-          if (currentTarget != null && activeTarget == null) {
-            // Ignore if target has already been specified: the last one takes precedence.
-            activeTarget = currentTarget;
-          }
-          value = currentSetting.get().value();
-          if (value != null) {
-            // the active target acts here
-            if (activeTarget == null || activeTarget.test(userUuid, playerRestrictive())) {
-              values.add(value);
-              valuedHosts.add(host);
-              valuedProfiles.add(currentProfile.profile());
-            } else {
-              // We have found the data which was specifically not targeted.
-              // So, pass through this data value and continue on anew.
-              activeTarget = null;
-            }
-          }
-        }
-      }
-
-      // now apply our values in the appropriate order
-      S result = manager().copySet(defaultData());
-      while (!values.isEmpty()) {
-        result = manager().copySet(values.pop().applyTo(result));
-        evaluation.add(valuedHosts.pop(), valuedProfiles.pop(), result);
-      }
-      return evaluation;
-
+    public EvaluationPlan<S> compile(@NotNull List<Host> hosts) {
+      return new EvaluationPlan.Poly<>(this, hosts);
     }
 
     @Override
@@ -565,6 +489,17 @@ public abstract class SettingKey<T,
      */
     public abstract T createAlternate(T data);
 
+    /**
+     * Copy a piece of data, so it may be changed without changing the original.
+     * Data which can't be changed doesn't need to be copied.
+     *
+     * @param data the data
+     * @return the copy
+     */
+    public T copyData(T data) {
+      return data;
+    }
+
     /**
      * A manager for {@link SettingKey.Unary}s.
      *
@@ -784,6 +719,11 @@ public abstract class SettingKey<T,
         return AltSet.full(emptySet());
       }
 
+      @Override
+      public final S copyData(S data) {
+        return copySet(data);
+      }
+
       /**
        * Shallow copy the set into another set.
        *
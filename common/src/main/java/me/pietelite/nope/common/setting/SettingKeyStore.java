@@ -54,6 +54,7 @@ public class SettingKeyStore {
       throw new IllegalArgumentException(String.format("A setting key with id %s already exists",
           settingKey.id()));
     }
+    settingKey.ordinal(settingMap.size());
     settingMap.put(settingKey.id(), settingKey);
   }
 
@@ -84,6 +84,15 @@ public final class SettingKeys {
           .category(SettingCategory.BLOCKS)
           .playerRestrictive()
           .build();
+  public static final SettingKey.Unary<Boolean> COST_MODEL_INDEXING =
+      SettingKeyManagers.TOGGLE_KEY_MANAGER.keyBuilder("cost-model-indexing")
+          .defaultValue(false)
+          .blurb("Index volumes by cost model")
+          .description("When enabled, the volumes of a world are indexed with a cost model "
+              + "which accounts for their sizes. This takes longer to build, but suits worlds "
+              + "with some very large volumes among many small ones. Takes effect on reload.")
+          .functional()
+          .build();
   public static final SettingKey.Poly<Explosive, ExplosiveSet> DESTRUCTIVE_EXPLOSIVES =
       SettingKeyManagers.POLY_EXPLOSIVE_KEY_MANAGER.keyBuilder("destructive-explosives")
           .fillDefaultData()
@@ -418,6 +427,15 @@ public final class SettingKeys {
           .category(SettingCategory.ENTITIES)
           .playerRestrictive()
           .build();
+  public static final SettingKey.Unary<Boolean> SECTION_INDEXING =
+      SettingKeyManagers.TOGGLE_KEY_MANAGER.keyBuilder("section-indexing")
+          .defaultValue(true)
+          .blurb("Index volumes by chunk section")
+          .description("When enabled, the scenes at the blocks of each chunk section are "
+              + "remembered once a block in it is looked up, which speeds up block changes "
+              + "in bulk. Takes effect on reload.")
+          .functional()
+          .build();
   public static final SettingKey.Unary<Boolean> SLEEP =
       SettingKeyManagers.STATE_KEY_MANAGER.keyBuilder("sleep")
           .defaultValue(true)
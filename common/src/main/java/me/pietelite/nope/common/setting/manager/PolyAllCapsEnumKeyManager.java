@@ -27,9 +27,9 @@ package me.pietelite.nope.common.setting.manager;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Supplier;
+import me.pietelite.nope.common.api.struct.AltSet;
 import me.pietelite.nope.common.api.struct.Described;
 import me.pietelite.nope.common.setting.SettingKey;
-import me.pietelite.nope.common.struct.HashAltSet;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -39,7 +39,7 @@ import org.jetbrains.annotations.NotNull;
  * @param <E> the enum type
  * @param <S> the set of values stored
  */
-public class PolyAllCapsEnumKeyManager<E extends Enum<E> & Described, S extends HashAltSet<E>>
+public class PolyAllCapsEnumKeyManager<E extends Enum<E> & Described, S extends AltSet<E>>
     extends SettingKey.Manager.Poly<E, S> {
 
   private final Class<E> clazz;
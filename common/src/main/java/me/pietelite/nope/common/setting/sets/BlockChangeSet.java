@@ -25,12 +25,12 @@
 package me.pietelite.nope.common.setting.sets;
 
 import me.pietelite.nope.common.api.setting.BlockChange;
-import me.pietelite.nope.common.struct.HashAltSet;
+import me.pietelite.nope.common.struct.BitAltSet;
 
 /**
  * A set of all possible block changes acknowledged by Nope.
  */
-public class BlockChangeSet extends HashAltSet.FewEnum<BlockChange> {
+public class BlockChangeSet extends BitAltSet.OfEnum<BlockChange> {
 
   public BlockChangeSet() {
     this(false);
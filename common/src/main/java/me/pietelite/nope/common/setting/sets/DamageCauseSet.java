@@ -25,12 +25,12 @@
 package me.pietelite.nope.common.setting.sets;
 
 import me.pietelite.nope.common.api.setting.DamageCause;
-import me.pietelite.nope.common.struct.HashAltSet;
+import me.pietelite.nope.common.struct.BitAltSet;
 
 /**
  * A set of causes of damage on a player in Minecraft.
  */
-public class DamageCauseSet extends HashAltSet.FewEnum<DamageCause> {
+public class DamageCauseSet extends BitAltSet.OfEnum<DamageCause> {
 
   public DamageCauseSet() {
     this(false);
@@ -25,12 +25,12 @@
 package me.pietelite.nope.common.setting.sets;
 
 import me.pietelite.nope.common.api.setting.Explosive;
-import me.pietelite.nope.common.struct.HashAltSet;
+import me.pietelite.nope.common.struct.BitAltSet;
 
 /**
- * A {@link HashAltSet} for storing Minecraft explosives.
+ * A {@link BitAltSet} for storing Minecraft explosives.
  */
-public class ExplosiveSet extends HashAltSet.FewEnum<Explosive> {
+public class ExplosiveSet extends BitAltSet.OfEnum<Explosive> {
 
   public ExplosiveSet() {
     this(false);
@@ -25,13 +25,13 @@
 package me.pietelite.nope.common.setting.sets;
 
 import java.util.Collection;
-import me.pietelite.nope.common.struct.HashAltSet;
+import me.pietelite.nope.common.struct.BitAltSet;
 
 /**
- * A {@link HashAltSet} for storing a small number of strings.
+ * A {@link BitAltSet} for storing a small number of strings.
  */
-public class FewStringSet extends HashAltSet.FewStandard<String> {
+public class FewStringSet extends BitAltSet<String> {
   public FewStringSet(boolean full, Collection<String> options) {
-    super(full, options);
+    super(full, Elements.of(options));
   }
 }
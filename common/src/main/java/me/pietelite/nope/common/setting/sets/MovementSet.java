@@ -25,12 +25,12 @@
 package me.pietelite.nope.common.setting.sets;
 
 import me.pietelite.nope.common.api.setting.Movement;
-import me.pietelite.nope.common.struct.HashAltSet;
+import me.pietelite.nope.common.struct.BitAltSet;
 
 /**
  * A set of modes of movements.
  */
-public class MovementSet extends HashAltSet.FewEnum<Movement> {
+public class MovementSet extends BitAltSet.OfEnum<Movement> {
 
   public MovementSet() {
     this(false);
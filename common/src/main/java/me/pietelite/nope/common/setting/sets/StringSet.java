@@ -24,13 +24,385 @@
 
 package me.pietelite.nope.common.setting.sets;
 
-import me.pietelite.nope.common.struct.HashAltSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+import me.pietelite.nope.common.api.struct.AltSet;
+import me.pietelite.nope.common.struct.StringIds;
+import org.jetbrains.annotations.NotNull;
 
 /**
- * A {@link HashAltSet} for storing an unbounded quantity of {@link String}s.
+ * An {@link AltSet} for storing an unbounded quantity of {@link String}s, like the ids
+ * of entities and blocks. The strings are stored as a bit set of their {@link StringIds},
+ * so like a {@link me.pietelite.nope.common.struct.HashAltSet}, this set is either made
+ * of the strings in the bit set, or if it is inverted, of all strings except them.
  */
-public class StringSet extends HashAltSet.UnboundedAlternate<String> {
+public class StringSet implements AltSet<String> {
+
+  private static final long[] NO_BITS = new long[0];
+
+  private long[] bits = NO_BITS;
+  private boolean inverted;
+
+  /**
+   * General constructor.
+   *
+   * @param full true if this set should be initialized as a full alt set
+   */
   public StringSet(boolean full) {
-    super(full);
+    if (full) {
+      this.fill();
+    }
+  }
+
+  /**
+   * Return whether this set contains the string with the given id,
+   * like {@link #contains(String)} without looking up the string.
+   *
+   * @param id the id of the string, from {@link StringIds}
+   * @return true if contains
+   */
+  public boolean containsId(int id) {
+    return inverted != has(id);
+  }
+
+  private boolean has(int id) {
+    return id >= 0 && (id >>> 6) < bits.length && (bits[id >>> 6] & (1L << id)) != 0;
+  }
+
+  private boolean setBit(int id) {
+    if ((id >>> 6) >= bits.length) {
+      bits = Arrays.copyOf(bits, Math.max((id >>> 6) + 1, bits.length * 2));
+    }
+    long word = bits[id >>> 6];
+    bits[id >>> 6] = word | (1L << id);
+    return bits[id >>> 6] != word;
+  }
+
+  private boolean clearBit(int id) {
+    if (!has(id)) {
+      return false;
+    }
+    bits[id >>> 6] &= ~(1L << id);
+    return true;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return !inverted && noBits(bits);
+  }
+
+  @Override
+  public boolean isFull() {
+    return inverted && noBits(bits);
+  }
+
+  @Override
+  public boolean contains(String element) {
+    return containsId(StringIds.find(element));
+  }
+
+  @Override
+  public boolean add(String element) {
+    return inverted
+        ? clearBit(StringIds.find(element))
+        : setBit(StringIds.intern(element));
+  }
+
+  @Override
+  public boolean remove(String element) {
+    return inverted
+        ? setBit(StringIds.intern(element))
+        : clearBit(StringIds.find(element));
+  }
+
+  @Override
+  public boolean containsAll(@NotNull AltSet<String> other) {
+    StringSet that = of(other);
+    if (this.inverted) {
+      if (that.inverted) {
+        return noBits(andNot(this.bits, that.bits));
+      } else {
+        return noBits(and(this.bits, that.bits));
+      }
+    } else {
+      if (that.inverted) {
+        // there are infinitely many strings
+        return false;
+      } else {
+        return noBits(andNot(that.bits, this.bits));
+      }
+    }
+  }
+
+  @Override
+  public void addAll(@NotNull AltSet<String> other) {
+    StringSet that = of(other);
+    if (this.inverted) {
+      if (that.inverted) {
+        this.bits = and(this.bits, that.bits);
+      } else {
+        this.bits = andNot(this.bits, that.bits);
+      }
+    } else {
+      if (that.inverted) {
+        this.bits = andNot(that.bits, this.bits);
+        this.inverted = true;
+      } else {
+        this.bits = or(this.bits, that.bits);
+      }
+    }
+  }
+
+  @Override
+  public boolean addAll(@NotNull Collection<String> collection) {
+    boolean success = true;
+    for (String element : collection) {
+      if (!add(element)) {
+        success = false;
+      }
+    }
+    return success;
+  }
+
+  @Override
+  public void retainAll(@NotNull AltSet<String> other) {
+    StringSet that = of(other);
+    if (this.inverted) {
+      if (that.inverted) {
+        this.bits = or(this.bits, that.bits);
+      } else {
+        this.bits = andNot(that.bits, this.bits);
+        this.inverted = false;
+      }
+    } else {
+      if (that.inverted) {
+        this.bits = andNot(this.bits, that.bits);
+      } else {
+        this.bits = and(this.bits, that.bits);
+      }
+    }
+  }
+
+  @Override
+  public boolean removeAll(@NotNull AltSet<String> other) {
+    StringSet that = of(other);
+    long[] oldBits = this.bits;
+    boolean oldInverted = this.inverted;
+    if (this.inverted) {
+      if (that.inverted) {
+        this.bits = andNot(that.bits, this.bits);
+        this.inverted = false;
+      } else {
+        this.bits = or(this.bits, that.bits);
+      }
+    } else {
+      if (that.inverted) {
+        this.bits = and(this.bits, that.bits);
+      } else {
+        this.bits = andNot(this.bits, that.bits);
+      }
+    }
+    return oldInverted != this.inverted || !sameBits(oldBits, this.bits);
+  }
+
+  @Override
+  public boolean removeAll(@NotNull Collection<String> collection) {
+    boolean success = true;
+    for (String element : collection) {
+      if (!remove(element)) {
+        success = false;
+      }
+    }
+    return success;
+  }
+
+  @Override
+  public void clear() {
+    this.bits = NO_BITS;
+    this.inverted = false;
+  }
+
+  @Override
+  public void fill() {
+    this.bits = NO_BITS;
+    this.inverted = true;
+  }
+
+  @Override
+  public void invert() {
+    this.inverted = !this.inverted;
+  }
+
+  @Override
+  public boolean inverted() {
+    return inverted;
+  }
+
+  /**
+   * {@inheritDoc} This is an unmodifiable view of the strings in the bit set.
+   *
+   * @return the set
+   */
+  @Override
+  public Set<String> set() {
+    return new Members();
+  }
+
+  /**
+   * Get another set as a {@link StringSet}, gathering its strings if it is any other kind of set.
+   */
+  private static StringSet of(AltSet<String> other) {
+    if (other instanceof StringSet) {
+      return (StringSet) other;
+    }
+    StringSet set = new StringSet(false);
+    for (String element : other.set()) {
+      set.setBit(StringIds.intern(element));
+    }
+    set.inverted = other.inverted();
+    return set;
+  }
+
+  private static long[] or(long[] first, long[] second) {
+    long[] result = Arrays.copyOf(first, Math.max(first.length, second.length));
+    for (int i = 0; i < second.length; i++) {
+      result[i] |= second[i];
+    }
+    return result;
+  }
+
+  private static long[] and(long[] first, long[] second) {
+    long[] result = new long[Math.min(first.length, second.length)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = first[i] & second[i];
+    }
+    return result;
+  }
+
+  private static long[] andNot(long[] first, long[] second) {
+    long[] result = first.clone();
+    for (int i = 0; i < Math.min(first.length, second.length); i++) {
+      result[i] &= ~second[i];
+    }
+    return result;
+  }
+
+  private static boolean noBits(long[] bits) {
+    for (long word : bits) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean sameBits(long[] first, long[] second) {
+    for (int i = 0; i < Math.max(first.length, second.length); i++) {
+      if ((i < first.length ? first[i] : 0) != (i < second.length ? second[i] : 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String printAll() {
+    String setString = set().stream().collect(Collectors.joining(", "));
+    if (inverted) {
+      if (noBits(bits)) {
+        return "all";
+      } else {
+        return "(all except) " + setString;
+      }
+    } else {
+      if (noBits(bits)) {
+        return "none";
+      } else {
+        return setString;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.printAll();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    StringSet that = (StringSet) o;
+    return inverted == that.inverted && sameBits(bits, that.bits);
+  }
+
+  @Override
+  public int hashCode() {
+    int length = bits.length;
+    while (length > 0 && bits[length - 1] == 0) {
+      length--;
+    }
+    return 31 * Arrays.hashCode(Arrays.copyOf(bits, length)) + (inverted ? 1 : 0);
   }
+
+  /**
+   * A view of the strings in the bit set.
+   */
+  private final class Members extends AbstractSet<String> {
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof String && has(StringIds.find((String) o));
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (long word : bits) {
+        size += Long.bitCount(word);
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int next = nextId(0);
+
+        @Override
+        public boolean hasNext() {
+          return next >= 0;
+        }
+
+        @Override
+        public String next() {
+          if (next < 0) {
+            throw new NoSuchElementException();
+          }
+          String element = StringIds.string(next);
+          next = nextId(next + 1);
+          return element;
+        }
+      };
+    }
+
+    private int nextId(int from) {
+      for (int id = from; (id >>> 6) < bits.length; id++) {
+        if (has(id)) {
+          return id;
+        }
+      }
+      return -1;
+    }
+  }
+
 }
@@ -25,6 +25,7 @@
 package me.pietelite.nope.common.storage;
 
 import me.pietelite.nope.common.host.Domain;
+import me.pietelite.nope.common.host.VolumeTree;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -45,4 +46,27 @@ public interface DomainDataHandler {
    * @param domain the domain to populate with stored info
    */
   void load(@NotNull Domain domain);
+
+  /**
+   * Save the constructed {@link VolumeTree} of a {@link Domain} to persistent storage,
+   * so it doesn't have to be constructed again the next time its volumes are loaded.
+   * By default, nothing is saved.
+   *
+   * @param domain the domain whose volumes to save
+   */
+  default void saveVolumes(@NotNull Domain domain) {
+    // nothing by default
+  }
+
+  /**
+   * Load the {@link VolumeTree} of a {@link Domain} from persistent storage,
+   * if one was saved for exactly the volumes the domain has now.
+   * By default, nothing is loaded.
+   *
+   * @param domain the domain whose volumes to load
+   * @return true if the tree was loaded, or false if it must be constructed
+   */
+  default boolean loadVolumes(@NotNull Domain domain) {
+    return false;
+  }
 }
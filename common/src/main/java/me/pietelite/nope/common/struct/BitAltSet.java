@@ -0,0 +1,454 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.struct;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import me.pietelite.nope.common.api.struct.AltSet;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An implementation of {@link AltSet} using a bit set as its underlying data structure,
+ * for types with a known, finite number of possible elements, like enums.
+ * Every possible element is given an ordinal by its {@link Elements}, so checking for an element
+ * only needs a single bit, and combining two sets of the same elements only needs
+ * a few bitwise operations.
+ *
+ * <p>Because all possible elements are known, this set never has to be inverted: inverting
+ * it just flips every bit.
+ *
+ * @param <T> the element type to store in this set
+ */
+public class BitAltSet<T> implements AltSet<T> {
+
+  private final Elements<T> elements;
+  private final long[] bits;
+
+  protected BitAltSet(boolean full, Elements<T> elements) {
+    this.elements = elements;
+    this.bits = new long[elements.words];
+    if (full) {
+      this.fill();
+    }
+  }
+
+  /**
+   * Create a set that stores enums.
+   *
+   * @param full  true if this set should be initialized as a full alt set
+   * @param clazz the enum class
+   * @param <E>   the type of enum
+   * @return a new set
+   */
+  public static <E extends Enum<E>> BitAltSet<E> ofEnum(boolean full, Class<E> clazz) {
+    return new BitAltSet<>(full, Elements.ofEnum(clazz));
+  }
+
+  /**
+   * Create a set that can only hold the given elements.
+   *
+   * @param full     true if this set should be initialized as a full alt set
+   * @param elements all possible elements in this set
+   * @param <X>      the type stored in the set
+   * @return a new set
+   */
+  public static <X> BitAltSet<X> of(boolean full, Collection<X> elements) {
+    return new BitAltSet<>(full, Elements.of(elements));
+  }
+
+  /**
+   * Get the possible elements of this set.
+   *
+   * @return the elements
+   */
+  public Elements<T> elements() {
+    return elements;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (long word : bits) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isFull() {
+    for (int i = 0; i < bits.length; i++) {
+      if (bits[i] != elements.mask(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean contains(T element) {
+    return has(elements.ordinal(element));
+  }
+
+  private boolean has(int ordinal) {
+    return ordinal >= 0 && (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+  }
+
+  @Override
+  public boolean add(T element) {
+    int ordinal = elements.ordinal(element);
+    if (ordinal < 0) {
+      throw new IllegalArgumentException(element + " is not a possible element of this set");
+    }
+    long word = bits[ordinal >>> 6];
+    bits[ordinal >>> 6] = word | (1L << ordinal);
+    return bits[ordinal >>> 6] != word;
+  }
+
+  @Override
+  public boolean remove(T element) {
+    int ordinal = elements.ordinal(element);
+    if (ordinal < 0) {
+      return false;
+    }
+    long word = bits[ordinal >>> 6];
+    bits[ordinal >>> 6] = word & ~(1L << ordinal);
+    return bits[ordinal >>> 6] != word;
+  }
+
+  @Override
+  public boolean containsAll(@NotNull AltSet<T> other) {
+    long[] otherBits = bitsOf(other);
+    for (int i = 0; i < bits.length; i++) {
+      if ((otherBits[i] & ~bits[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void addAll(@NotNull AltSet<T> other) {
+    long[] otherBits = bitsOf(other);
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] |= otherBits[i];
+    }
+  }
+
+  @Override
+  public boolean addAll(@NotNull Collection<T> collection) {
+    boolean success = true;
+    for (T element : collection) {
+      if (!add(element)) {
+        success = false;
+      }
+    }
+    return success;
+  }
+
+  @Override
+  public void retainAll(@NotNull AltSet<T> other) {
+    long[] otherBits = bitsOf(other);
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] &= otherBits[i];
+    }
+  }
+
+  @Override
+  public boolean removeAll(@NotNull AltSet<T> other) {
+    long[] otherBits = bitsOf(other);
+    boolean changed = false;
+    for (int i = 0; i < bits.length; i++) {
+      long word = bits[i];
+      bits[i] = word & ~otherBits[i];
+      changed |= bits[i] != word;
+    }
+    return changed;
+  }
+
+  @Override
+  public boolean removeAll(@NotNull Collection<T> collection) {
+    boolean success = true;
+    for (T element : collection) {
+      if (!remove(element)) {
+        success = false;
+      }
+    }
+    return success;
+  }
+
+  /**
+   * Get the bits of another set over the same elements. Sets of the same elements share
+   * their bits directly, and any other set has its bits gathered one element at a time.
+   */
+  private long[] bitsOf(AltSet<T> other) {
+    if (other instanceof BitAltSet && ((BitAltSet<?>) other).elements == elements) {
+      return ((BitAltSet<?>) other).bits;
+    }
+    long[] otherBits = new long[bits.length];
+    for (int ordinal = 0; ordinal < elements.size(); ordinal++) {
+      if (other.contains(elements.element(ordinal))) {
+        otherBits[ordinal >>> 6] |= 1L << ordinal;
+      }
+    }
+    return otherBits;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(bits, 0);
+  }
+
+  @Override
+  public void fill() {
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = elements.mask(i);
+    }
+  }
+
+  @Override
+  public void invert() {
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] ^= elements.mask(i);
+    }
+  }
+
+  /**
+   * {@inheritDoc} All possible elements are known, so this set is never inverted.
+   *
+   * @return false
+   */
+  @Override
+  public boolean inverted() {
+    return false;
+  }
+
+  /**
+   * {@inheritDoc} This is an unmodifiable view of the elements in this set.
+   *
+   * @return the set
+   */
+  @Override
+  public Set<T> set() {
+    return new Members();
+  }
+
+  @Override
+  public String printAll() {
+    if (isEmpty()) {
+      return "none";
+    }
+    return set().stream().map(Object::toString).collect(Collectors.joining(", "));
+  }
+
+  @Override
+  public String toString() {
+    return this.printAll();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BitAltSet<?> that = (BitAltSet<?>) o;
+    return elements == that.elements && Arrays.equals(bits, that.bits);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bits);
+  }
+
+  /**
+   * A set designed to store enums.
+   *
+   * @param <E> the type of enum stored in the set
+   */
+  public static class OfEnum<E extends Enum<E>> extends BitAltSet<E> {
+
+    /**
+     * General constructor.
+     *
+     * @param full  true if this set should be initialized as a full alt set
+     * @param clazz the enum class
+     */
+    public OfEnum(boolean full, Class<E> clazz) {
+      super(full, Elements.ofEnum(clazz));
+    }
+  }
+
+  /**
+   * A view of the elements in the set.
+   */
+  private final class Members extends AbstractSet<T> {
+
+    @Override
+    public boolean contains(Object o) {
+      return has(elements.ordinal(o));
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (long word : bits) {
+        size += Long.bitCount(word);
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private int next = nextOrdinal(0);
+
+        @Override
+        public boolean hasNext() {
+          return next >= 0;
+        }
+
+        @Override
+        public T next() {
+          if (next < 0) {
+            throw new NoSuchElementException();
+          }
+          T element = elements.element(next);
+          next = nextOrdinal(next + 1);
+          return element;
+        }
+      };
+    }
+
+    private int nextOrdinal(int from) {
+      for (int ordinal = from; ordinal < elements.size(); ordinal++) {
+        if (has(ordinal)) {
+          return ordinal;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * All the possible elements of a {@link BitAltSet}, each with an ordinal which is its
+   * position in the bit set. These are interned, so all sets of the same elements share
+   * the same instance and can be combined bit by bit.
+   *
+   * @param <T> the element type
+   */
+  public static final class Elements<T> {
+
+    private static final Map<Object, Elements<?>> INTERNED = new ConcurrentHashMap<>();
+
+    private final List<T> elements;
+    private final Class<?> enumType;
+    private final Map<Object, Integer> ordinals;
+    private final int words;
+    private final long lastMask;
+
+    private Elements(List<T> elements, Class<?> enumType) {
+      this.elements = Collections.unmodifiableList(elements);
+      this.enumType = enumType;
+      if (enumType == null) {
+        this.ordinals = new HashMap<>();
+        for (int i = 0; i < elements.size(); i++) {
+          this.ordinals.put(elements.get(i), i);
+        }
+      } else {
+        this.ordinals = null;
+      }
+      this.words = (elements.size() + 63) >>> 6;
+      this.lastMask = elements.size() % 64 == 0 ? -1L : (1L << elements.size()) - 1;
+    }
+
+    /**
+     * Get the elements of an enum, ordered by their own ordinals.
+     *
+     * @param clazz the enum class
+     * @param <E>   the type of enum
+     * @return the elements
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E>> Elements<E> ofEnum(Class<E> clazz) {
+      return (Elements<E>) INTERNED.computeIfAbsent(clazz, c ->
+          new Elements<>(Arrays.asList(clazz.getEnumConstants()), clazz));
+    }
+
+    /**
+     * Get the elements of a collection, in the order of the collection.
+     *
+     * @param collection the possible elements
+     * @param <X>        the element type
+     * @return the elements
+     */
+    @SuppressWarnings("unchecked")
+    public static <X> Elements<X> of(Collection<X> collection) {
+      List<X> list = new ArrayList<>(new LinkedHashSet<>(collection));
+      return (Elements<X>) INTERNED.computeIfAbsent(list, l -> new Elements<>(list, null));
+    }
+
+    /**
+     * Get the ordinal of an element.
+     *
+     * @param element the element
+     * @return the ordinal, or -1 if it isn't one of these elements
+     */
+    public int ordinal(Object element) {
+      if (enumType != null) {
+        return enumType.isInstance(element) ? ((Enum<?>) element).ordinal() : -1;
+      }
+      Integer ordinal = ordinals.get(element);
+      return ordinal == null ? -1 : ordinal;
+    }
+
+    public T element(int ordinal) {
+      return elements.get(ordinal);
+    }
+
+    public int size() {
+      return elements.size();
+    }
+
+    private long mask(int word) {
+      return word == words - 1 ? lastMask : -1L;
+    }
+  }
+
+}
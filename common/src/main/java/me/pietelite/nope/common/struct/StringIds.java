@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.struct;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A global dictionary of strings, like the ids of entities and blocks, which gives every
+ * string a dense int id the first time it is interned. Sets of strings may then be stored
+ * as sets of small ints, so they can be combined with a few bitwise operations.
+ *
+ * <p>Ids are never forgotten, so only strings which are likely to be asked for again should
+ * be interned, like registered ids and the ids in settings. Strings are only looked up with
+ * {@link #find(String)}, which doesn't intern them.
+ */
+public final class StringIds {
+
+  private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+  private static volatile String[] strings = new String[256];
+  private static int size = 0;
+
+  private StringIds() {
+  }
+
+  /**
+   * Get the id of a string, interning it if it doesn't have one yet.
+   *
+   * @param string the string
+   * @return the id
+   */
+  public static int intern(@NotNull String string) {
+    Integer id = IDS.get(string);
+    if (id != null) {
+      return id;
+    }
+    return assign(string);
+  }
+
+  private static synchronized int assign(String string) {
+    Integer id = IDS.get(string);
+    if (id != null) {
+      return id;
+    }
+    String[] current = strings;
+    if (size == current.length) {
+      current = Arrays.copyOf(current, size * 2);
+    }
+    current[size] = string;
+    strings = current;
+    IDS.put(string, size);
+    return size++;
+  }
+
+  /**
+   * Get the id of a string without interning it.
+   *
+   * @param string the string
+   * @return the id, or -1 if the string was never interned
+   */
+  public static int find(@Nullable String string) {
+    if (string == null) {
+      return -1;
+    }
+    Integer id = IDS.get(string);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Get the string with an id.
+   *
+   * @param id the id
+   * @return the string
+   */
+  @NotNull
+  public static String string(int id) {
+    return strings[id];
+  }
+
+}
@@ -0,0 +1,506 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.struct;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A bounded cache which admits new entries according to how often their keys
+ * have been requested recently (W-TinyLFU).
+ *
+ * <p>New entries first enter a small window ordered by recency. An entry which falls out
+ * of the window only replaces the least recently used entry of the main space if its key
+ * has been requested more often, as estimated by a small frequency sketch, so a burst of
+ * one-off requests can't flush out entries which are requested over and over.
+ * The main space is split into a probationary and a protected segment, and entries
+ * are promoted to the protected segment when they are requested again.
+ *
+ * <p>The cache is split into stripes by key hash, each with its own lock and its own
+ * share of the capacity, so concurrent requests for different keys rarely contend.
+ * The cache never holds more entries than its capacity.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class TinyLfuCache<K, V> {
+
+  /**
+   * The least amount of entries a stripe holds, unless the whole cache is smaller.
+   */
+  static final int MIN_STRIPE_CAPACITY = 64;
+
+  private static final int MAX_STRIPES = 64;
+
+  private final Stripe<K, V>[] stripes;
+  private final int capacity;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private volatile long version = 0;
+
+  /**
+   * Generic constructor.
+   *
+   * @param capacity the most entries this cache holds at once
+   */
+  @SuppressWarnings("unchecked")
+  public TinyLfuCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity of a cache must be positive");
+    }
+    this.capacity = capacity;
+    int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(
+        Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 4),
+        capacity / MIN_STRIPE_CAPACITY)));
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      // Hand out the remainder one by one, so the stripes add up to exactly the capacity
+      int stripeCapacity = capacity / stripeCount + (i < capacity % stripeCount ? 1 : 0);
+      stripes[i] = new Stripe<>(stripeCapacity);
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the amount of entries in the cache.
+   *
+   * @return the size
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe<K, V> stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.entries.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Get the version of the contents of the cache, to pass back to
+   * {@link #put(Object, Object, long)} once the value to put is computed.
+   * The version changes every time the cache is cleared.
+   *
+   * @return the version
+   */
+  public long version() {
+    return version;
+  }
+
+  /**
+   * Get the cached value of a key and count the request towards the key's frequency.
+   *
+   * @param key the key
+   * @return the value, or null if none is cached
+   */
+  @Nullable
+  public V get(@NotNull K key) {
+    int hash = spread(key.hashCode());
+    Stripe<K, V> stripe = stripe(hash);
+    V value;
+    synchronized (stripe) {
+      value = stripe.get(key, hash);
+    }
+    if (value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Cache a value, unless the cache was cleared since the value was computed.
+   * This evicts an entry if the key's stripe is full.
+   *
+   * @param key     the key
+   * @param value   the value
+   * @param version the {@link #version()} of the cache from before the value was computed
+   */
+  public void put(@NotNull K key, @NotNull V value, long version) {
+    int hash = spread(key.hashCode());
+    Stripe<K, V> stripe = stripe(hash);
+    int evicted;
+    synchronized (stripe) {
+      if (version != this.version) {
+        return;
+      }
+      evicted = stripe.put(key, value, hash);
+    }
+    if (evicted > 0) {
+      evictions.add(evicted);
+    }
+  }
+
+  /**
+   * Remove every entry. Values computed before this call will not be cached afterwards.
+   */
+  public synchronized void clear() {
+    version++;
+    for (Stripe<K, V> stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  /**
+   * Remove every entry whose key matches the predicate. No value computed before this
+   * call will be cached afterwards, whatever its key, since it may have been computed
+   * from whatever the removed entries were outdated by.
+   *
+   * @param predicate the predicate
+   */
+  public synchronized void invalidate(@NotNull Predicate<? super K> predicate) {
+    version++;
+    for (Stripe<K, V> stripe : stripes) {
+      synchronized (stripe) {
+        stripe.invalidate(predicate);
+      }
+    }
+  }
+
+  /**
+   * Get the amount of requests which found a cached value.
+   *
+   * @return the hit count
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Get the amount of requests which found no cached value.
+   *
+   * @return the miss count
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Get the amount of entries which were evicted to keep the cache within its capacity.
+   *
+   * @return the eviction count
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  private Stripe<K, V> stripe(int hash) {
+    // The sketch uses the low bits of the hash, so choose the stripe by the high bits
+    return stripes[(hash >>> 16) & (stripes.length - 1)];
+  }
+
+  private static int spread(int hash) {
+    hash *= 0x9e3779b9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * The segment of an entry in its stripe.
+   */
+  private enum Segment {
+    WINDOW,
+    PROBATION,
+    PROTECTED
+  }
+
+  /**
+   * An entry in the cache, which is also a link in the list of its segment.
+   */
+  private static final class Entry<K, V> {
+    final K key;
+    final int hash;
+    V value;
+    Segment segment;
+    Entry<K, V> previous;
+    Entry<K, V> next;
+
+    Entry(K key, int hash, V value) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A list of entries from least to most recently used.
+   */
+  private static final class AccessOrder<K, V> {
+    final Segment segment;
+    Entry<K, V> head;
+    Entry<K, V> tail;
+    int size;
+
+    AccessOrder(Segment segment) {
+      this.segment = segment;
+    }
+
+    void add(Entry<K, V> entry) {
+      entry.segment = segment;
+      entry.previous = tail;
+      entry.next = null;
+      if (tail == null) {
+        head = entry;
+      } else {
+        tail.next = entry;
+      }
+      tail = entry;
+      size++;
+    }
+
+    void remove(Entry<K, V> entry) {
+      if (entry.previous == null) {
+        head = entry.next;
+      } else {
+        entry.previous.next = entry.next;
+      }
+      if (entry.next == null) {
+        tail = entry.previous;
+      } else {
+        entry.next.previous = entry.previous;
+      }
+      entry.previous = null;
+      entry.next = null;
+      size--;
+    }
+
+    void touch(Entry<K, V> entry) {
+      if (entry != tail) {
+        remove(entry);
+        add(entry);
+      }
+    }
+
+    void clear() {
+      head = null;
+      tail = null;
+      size = 0;
+    }
+  }
+
+  /**
+   * One independently locked part of the cache.
+   */
+  private static final class Stripe<K, V> {
+    final Map<K, Entry<K, V>> entries = new HashMap<>();
+    final AccessOrder<K, V> window = new AccessOrder<>(Segment.WINDOW);
+    final AccessOrder<K, V> probation = new AccessOrder<>(Segment.PROBATION);
+    final AccessOrder<K, V> protectedOrder = new AccessOrder<>(Segment.PROTECTED);
+    final FrequencySketch sketch;
+    final int windowCapacity;
+    final int mainCapacity;
+    final int protectedCapacity;
+
+    Stripe(int capacity) {
+      // A window of about one percent admits new entries, the rest holds the frequently used ones
+      this.windowCapacity = Math.max(1, capacity / 100);
+      this.mainCapacity = capacity - windowCapacity;
+      this.protectedCapacity = mainCapacity * 4 / 5;
+      this.sketch = new FrequencySketch(capacity);
+    }
+
+    V get(K key, int hash) {
+      sketch.increment(hash);
+      Entry<K, V> entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      onHit(entry);
+      return entry.value;
+    }
+
+    int put(K key, V value, int hash) {
+      Entry<K, V> entry = entries.get(key);
+      if (entry != null) {
+        entry.value = value;
+        onHit(entry);
+        return 0;
+      }
+      entry = new Entry<>(key, hash, value);
+      entries.put(key, entry);
+      window.add(entry);
+      return evict();
+    }
+
+    void invalidate(Predicate<? super K> predicate) {
+      Iterator<Entry<K, V>> iterator = entries.values().iterator();
+      while (iterator.hasNext()) {
+        Entry<K, V> entry = iterator.next();
+        if (predicate.test(entry.key)) {
+          iterator.remove();
+          switch (entry.segment) {
+            case WINDOW:
+              window.remove(entry);
+              break;
+            case PROBATION:
+              probation.remove(entry);
+              break;
+            default:
+              protectedOrder.remove(entry);
+              break;
+          }
+        }
+      }
+    }
+
+    void clear() {
+      entries.clear();
+      window.clear();
+      probation.clear();
+      protectedOrder.clear();
+    }
+
+    private void onHit(Entry<K, V> entry) {
+      switch (entry.segment) {
+        case WINDOW:
+          window.touch(entry);
+          break;
+        case PROBATION:
+          // Requested again, so it has proven itself worth protecting
+          probation.remove(entry);
+          protectedOrder.add(entry);
+          if (protectedOrder.size > protectedCapacity) {
+            Entry<K, V> demoted = protectedOrder.head;
+            protectedOrder.remove(demoted);
+            probation.add(demoted);
+          }
+          break;
+        default:
+          protectedOrder.touch(entry);
+          break;
+      }
+    }
+
+    /**
+     * Move entries out of the window and evict entries until the stripe is within capacity.
+     *
+     * @return the amount of evicted entries
+     */
+    private int evict() {
+      int evicted = 0;
+      while (window.size > windowCapacity) {
+        Entry<K, V> candidate = window.head;
+        window.remove(candidate);
+        if (probation.size + protectedOrder.size < mainCapacity) {
+          probation.add(candidate);
+          continue;
+        }
+        Entry<K, V> victim = probation.head != null ? probation.head : protectedOrder.head;
+        if (victim == null) {
+          // There is no main space at all
+          entries.remove(candidate.key);
+          evicted++;
+          continue;
+        }
+        if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+          if (victim.segment == Segment.PROBATION) {
+            probation.remove(victim);
+          } else {
+            protectedOrder.remove(victim);
+          }
+          entries.remove(victim.key);
+          probation.add(candidate);
+        } else {
+          entries.remove(candidate.key);
+        }
+        evicted++;
+      }
+      return evicted;
+    }
+  }
+
+  /**
+   * A count-min sketch of four-bit counters estimating how often each hash was requested
+   * recently. All counters are halved periodically, so old popularity fades away.
+   */
+  private static final class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int sampleSize;
+    private int additions = 0;
+
+    FrequencySketch(int capacity) {
+      // Every long holds sixteen counters, so there are about sixteen counters for every entry
+      int length = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+      this.table = new long[length];
+      this.sampleSize = 10 * Math.max(1, capacity);
+    }
+
+    int frequency(int hash) {
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        int offset = (start + i) << 2;
+        int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(int hash) {
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int offset = (start + i) << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize) {
+        reset();
+      }
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & (table.length - 1);
+    }
+
+    private void reset() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      additions /= 2;
+    }
+  }
+}
@@ -78,4 +78,9 @@ public class MockNope extends Nope {
   public void scheduleAsyncIntervalTask(Runnable runnable, int interval, TimeUnit intervalUnit) {
     // ignore
   }
+
+  @Override
+  public void scheduleAsyncTask(Runnable runnable) {
+    runnable.run();
+  }
 }
@@ -24,13 +24,22 @@
 
 package me.pietelite.nope.common.api;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 import me.pietelite.nope.common.MockNope;
 import me.pietelite.nope.common.Nope;
 import me.pietelite.nope.common.api.edit.MultipleValueSettingEditor;
 import me.pietelite.nope.common.api.setting.BlockChange;
+import me.pietelite.nope.common.api.setting.Movement;
+import me.pietelite.nope.common.host.Evaluation;
+import me.pietelite.nope.common.host.HostSystem;
+import me.pietelite.nope.common.host.LookupResults;
+import me.pietelite.nope.common.permission.Permissions;
 import me.pietelite.nope.common.setting.SettingKeys;
 import me.pietelite.nope.common.setting.sets.BlockChangeSet;
+import me.pietelite.nope.common.struct.Location;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -125,6 +134,168 @@ public class EvaluateTest extends ApiTest {
     Assertions.assertEquals(d2Result, service().evaluator().polySetting(SettingKeys.BLOCK_CHANGE.name(), 0, 0, 0, MockNope.DOMAIN_2, UUID.randomUUID(), BlockChange.class));
   }
 
+  @Test
+  void evaluationsAreRemembered() {
+    HostSystem system = Nope.instance().system();
+    Location location = new Location(0, 0, 0, system.domains().get(MockNope.DOMAIN_1));
+    UUID user = UUID.randomUUID();
+    Evaluation<Boolean> evaluation = system.lookup(SettingKeys.RIDE, null, location);
+    Assertions.assertSame(evaluation, system.lookup(SettingKeys.RIDE, null, location));
+    Assertions.assertNotSame(evaluation, system.lookup(SettingKeys.RIDE, user, location));
+
+    long epoch = system.epoch();
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editSingleValueSetting(SettingKeys.RIDE.name(), Boolean.class).set(false);
+    Assertions.assertNotEquals(epoch, system.epoch());
+    Assertions.assertEquals(false, system.lookup(SettingKeys.RIDE, user, location).result());
+    Assertions.assertEquals(false, system.lookupGlobal(SettingKeys.RIDE, user).result());
+    Assertions.assertEquals(false, system.lookupResult(SettingKeys.RIDE, user, location));
+
+    // permission changes apply to users right away, and keep the anonymous evaluations and the epoch
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editSetting(SettingKeys.RIDE.name()).editTarget().targetAll();
+    Evaluation<Boolean> anonymous = system.lookup(SettingKeys.RIDE, null, location);
+    Assertions.assertEquals(false, system.lookupResult(SettingKeys.RIDE, user, location));
+    epoch = system.epoch();
+    ((MockNope) Nope.instance()).registerPermission(user, Permissions.UNRESTRICTED.get());
+    Assertions.assertEquals(SettingKeys.RIDE.defaultData(), system.lookup(SettingKeys.RIDE, user, location).result());
+    Assertions.assertEquals(SettingKeys.RIDE.defaultData(), system.lookupResult(SettingKeys.RIDE, user, location));
+    Assertions.assertSame(anonymous, system.lookup(SettingKeys.RIDE, null, location));
+    Assertions.assertEquals(epoch, system.epoch());
+  }
+
+  @Test
+  void evaluateTargetedPerUser() {
+    UUID targeted = UUID.randomUUID();
+    UUID other = UUID.randomUUID();
+    BlockChangeSet globalBlockChanges = new BlockChangeSet(true);
+    globalBlockChanges.remove(BlockChange.BREAK);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class)
+        .setDeclarative(globalBlockChanges);
+
+    service().editSystem().editScope(Nope.NOPE_SCOPE).createProfile(MockNope.DOMAIN_1);
+    service().editSystem().editDomain(MockNope.DOMAIN_1).addProfile(Nope.NOPE_SCOPE, MockNope.DOMAIN_1, 0);
+    BlockChangeSet domainBlockChanges = new BlockChangeSet(false);
+    domainBlockChanges.add(BlockChange.GROW);
+    MultipleValueSettingEditor<BlockChange> blockChangeEditor = service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(MockNope.DOMAIN_1)
+        .editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class);
+    blockChangeEditor.setManipulative(domainBlockChanges, MultipleValueSettingEditor.ManipulativeType.SUBTRACTIVE);
+    blockChangeEditor.editTarget().targetNone();
+    blockChangeEditor.editTarget().addPlayer(targeted);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(MockNope.DOMAIN_1).editSingleValueSetting(SettingKeys.RIDE.name(), Boolean.class).set(false);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(MockNope.DOMAIN_1).editSetting(SettingKeys.RIDE.name()).editTarget().targetNone();
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(MockNope.DOMAIN_1).editSetting(SettingKeys.RIDE.name()).editTarget().addPlayer(targeted);
+
+    BlockChangeSet targetedResult = new BlockChangeSet(true);
+    targetedResult.remove(BlockChange.BREAK);
+    targetedResult.remove(BlockChange.GROW);
+    for (int i = 0; i < 2; i++) {
+      Assertions.assertEquals(targetedResult, service().evaluator().polySetting(SettingKeys.BLOCK_CHANGE.name(), 0, 0, 0, MockNope.DOMAIN_1, targeted, BlockChange.class));
+      Assertions.assertEquals(globalBlockChanges, service().evaluator().polySetting(SettingKeys.BLOCK_CHANGE.name(), 0, 0, 0, MockNope.DOMAIN_1, other, BlockChange.class));
+      Assertions.assertEquals(globalBlockChanges, service().evaluator().polySetting(SettingKeys.BLOCK_CHANGE.name(), 0, 0, 0, MockNope.DOMAIN_1, BlockChange.class));
+      Assertions.assertEquals(false, service().evaluator().unarySetting(SettingKeys.RIDE.name(), 0, 0, 0, MockNope.DOMAIN_1, targeted, Boolean.class));
+      Assertions.assertEquals(SettingKeys.RIDE.defaultData(), service().evaluator().unarySetting(SettingKeys.RIDE.name(), 0, 0, 0, MockNope.DOMAIN_1, other, Boolean.class));
+    }
+  }
+
+  @Test
+  void resultsMatchEvaluations() {
+    UUID targeted = UUID.randomUUID();
+    HostSystem system = Nope.instance().system();
+    Location location = new Location(0, 0, 0, system.domains().get(MockNope.DOMAIN_1));
+    service().editSystem().editScope(Nope.NOPE_SCOPE).createProfile(MockNope.DOMAIN_1);
+    service().editSystem().editDomain(MockNope.DOMAIN_1).addProfile(Nope.NOPE_SCOPE, MockNope.DOMAIN_1, 0);
+    BlockChangeSet domainBlockChanges = new BlockChangeSet(false);
+    domainBlockChanges.add(BlockChange.GROW);
+    MultipleValueSettingEditor<BlockChange> blockChangeEditor = service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(MockNope.DOMAIN_1)
+        .editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class);
+    blockChangeEditor.setManipulative(domainBlockChanges, MultipleValueSettingEditor.ManipulativeType.SUBTRACTIVE);
+    blockChangeEditor.editTarget().targetNone();
+    blockChangeEditor.editTarget().addPlayer(targeted);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editSingleValueSetting(SettingKeys.RIDE.name(), Boolean.class).set(false);
+
+    for (UUID user : new UUID[] {targeted, UUID.randomUUID(), null}) {
+      Assertions.assertEquals(system.lookup(SettingKeys.BLOCK_CHANGE, user, location).result(), system.lookupResult(SettingKeys.BLOCK_CHANGE, user, location));
+      Assertions.assertEquals(system.lookup(SettingKeys.RIDE, user, location).result(), system.lookupResult(SettingKeys.RIDE, user, location));
+      Assertions.assertEquals(system.lookupBlock(SettingKeys.BLOCK_CHANGE, user, location.domain(), 0, 0, 0).result(), system.lookupBlockResult(SettingKeys.BLOCK_CHANGE, user, location.domain(), 0, 0, 0));
+      Assertions.assertEquals(system.lookupGlobal(SettingKeys.RIDE, user).result(), system.lookupGlobalResult(SettingKeys.RIDE, user));
+    }
+    Assertions.assertFalse(system.lookupResult(SettingKeys.BLOCK_CHANGE, targeted, location).contains(BlockChange.GROW));
+    Assertions.assertTrue(system.lookupResult(SettingKeys.BLOCK_CHANGE, null, location).contains(BlockChange.GROW));
+  }
+
+  @Test
+  void evaluateManipulativeOverDeclarative() {
+    BlockChangeSet globalBlockChanges = new BlockChangeSet(false);
+    globalBlockChanges.add(BlockChange.GROW);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class)
+        .setDeclarative(globalBlockChanges);
+
+    service().editSystem().editScope(Nope.NOPE_SCOPE).createProfile(MockNope.DOMAIN_1);
+    service().editSystem().editDomain(MockNope.DOMAIN_1).addProfile(Nope.NOPE_SCOPE, MockNope.DOMAIN_1, 0);
+    BlockChangeSet domainBlockChanges = new BlockChangeSet(false);
+    domainBlockChanges.add(BlockChange.BREAK);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(MockNope.DOMAIN_1).editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class)
+        .setManipulative(domainBlockChanges, MultipleValueSettingEditor.ManipulativeType.ADDITIVE);
+
+    BlockChangeSet result = new BlockChangeSet(false);
+    result.add(BlockChange.GROW);
+    result.add(BlockChange.BREAK);
+    HostSystem system = Nope.instance().system();
+    Location location = new Location(0, 0, 0, system.domains().get(MockNope.DOMAIN_1));
+    Assertions.assertEquals(result, system.lookupResult(SettingKeys.BLOCK_CHANGE, null, location));
+    Assertions.assertEquals(result, system.lookup(SettingKeys.BLOCK_CHANGE, null, location).result());
+    Assertions.assertEquals(globalBlockChanges, system.lookupGlobalResult(SettingKeys.BLOCK_CHANGE, null));
+
+    // the stored values are never changed by evaluating them
+    Assertions.assertEquals(globalBlockChanges, service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID)
+        .editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class).getDeclarative());
+  }
+
+  @Test
+  void evaluateSeveralSettings() {
+    UUID user = UUID.randomUUID();
+    HostSystem system = Nope.instance().system();
+    Location location = new Location(0, 0, 0, system.domains().get(MockNope.DOMAIN_1));
+    BlockChangeSet globalBlockChanges = new BlockChangeSet(true);
+    globalBlockChanges.remove(BlockChange.BREAK);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class)
+        .setDeclarative(globalBlockChanges);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editSingleValueSetting(SettingKeys.RIDE.name(), Boolean.class).set(false);
+
+    LookupResults results = system.lookupResults(user, location, SettingKeys.BLOCK_CHANGE, SettingKeys.RIDE, SettingKeys.MOVE);
+    Assertions.assertEquals(3, results.size());
+    Assertions.assertEquals(globalBlockChanges, results.get(SettingKeys.BLOCK_CHANGE));
+    Assertions.assertEquals(false, results.get(SettingKeys.RIDE));
+    Assertions.assertEquals(SettingKeys.MOVE.defaultData(), results.get(SettingKeys.MOVE));
+    Assertions.assertThrows(NoSuchElementException.class, () -> results.get(SettingKeys.BLOCK_PROPAGATE));
+
+    LookupResults tracked = system.lookupResults(user, location, user, SettingKeys.BLOCK_CHANGE, SettingKeys.RIDE);
+    Assertions.assertEquals(globalBlockChanges, tracked.get(SettingKeys.BLOCK_CHANGE));
+    Assertions.assertEquals(false, tracked.get(SettingKeys.RIDE));
+
+    Map<String, Object> settings = service().evaluator().settings(Arrays.asList(SettingKeys.BLOCK_CHANGE.name(), SettingKeys.RIDE.name()), 0, 0, 0, MockNope.DOMAIN_1, user);
+    Assertions.assertEquals(2, settings.size());
+    Assertions.assertEquals(globalBlockChanges, settings.get(SettingKeys.BLOCK_CHANGE.name()));
+    Assertions.assertEquals(false, settings.get(SettingKeys.RIDE.name()));
+  }
+
+  @Test
+  void evaluatedSetsAreCopies() {
+    BlockChangeSet globalBlockChanges = new BlockChangeSet(true);
+    globalBlockChanges.remove(BlockChange.BREAK);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID).editMultipleValueSetting(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class)
+        .setDeclarative(globalBlockChanges);
+
+    service().evaluator().polySetting(SettingKeys.BLOCK_CHANGE.name(), 0, 0, 0, MockNope.DOMAIN_1, BlockChange.class).remove(BlockChange.GROW);
+    service().evaluator().polySettingGlobal(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class).remove(BlockChange.GROW);
+    ((BlockChangeSet) service().evaluator().settings(Arrays.asList(SettingKeys.BLOCK_CHANGE.name()), 0, 0, 0, MockNope.DOMAIN_1, null)
+        .get(SettingKeys.BLOCK_CHANGE.name())).remove(BlockChange.GROW);
+    service().evaluator().polySetting(SettingKeys.MOVE.name(), 0, 0, 0, MockNope.DOMAIN_1, Movement.class).clear();
+
+    Assertions.assertEquals(globalBlockChanges, service().evaluator().polySetting(SettingKeys.BLOCK_CHANGE.name(), 0, 0, 0, MockNope.DOMAIN_1, BlockChange.class));
+    Assertions.assertEquals(globalBlockChanges, service().evaluator().polySettingGlobal(SettingKeys.BLOCK_CHANGE.name(), BlockChange.class));
+    Assertions.assertEquals(SettingKeys.MOVE.defaultData(), service().evaluator().polySetting(SettingKeys.MOVE.name(), 0, 0, 0, MockNope.DOMAIN_1, Movement.class));
+  }
+
   // TODO add tests validating cascading effects of multiple-profile hosts
 
 }
@@ -24,6 +24,7 @@
 
 package me.pietelite.nope.common.api;
 
+import java.util.Collections;
 import java.util.NoSuchElementException;
 import me.pietelite.nope.common.MockNope;
 import me.pietelite.nope.common.Nope;
@@ -31,6 +32,9 @@ import me.pietelite.nope.common.api.edit.HostEditor;
 import me.pietelite.nope.common.api.edit.SceneEditor;
 import me.pietelite.nope.common.api.edit.TargetEditor;
 import me.pietelite.nope.common.api.edit.ZoneType;
+import me.pietelite.nope.common.host.Host;
+import me.pietelite.nope.common.host.HostSystem;
+import me.pietelite.nope.common.setting.SettingKeys;
 import me.pietelite.nope.common.util.ApiUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -76,6 +80,44 @@ public class HostEditorTest extends ApiTest {
     Assertions.assertFalse(hostEditor.hasTarget(1));
   }
 
+  @Test
+  void isSet() {
+    Host domain = Nope.instance().system().domains().get(MockNope.DOMAIN_1);
+    Assertions.assertFalse(domain.isSet(SettingKeys.RIDE));
+    service().editSystem().editScope(Nope.NOPE_SCOPE).createProfile("banana");
+    service().editSystem().editDomain(MockNope.DOMAIN_1).addProfile(Nope.NOPE_SCOPE, "banana", 0);
+    Assertions.assertFalse(domain.isSet(SettingKeys.RIDE));
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile("banana")
+        .editSingleValueSetting(SettingKeys.RIDE.name(), Boolean.class).set(false);
+    Assertions.assertTrue(domain.isSet(SettingKeys.RIDE));
+    Assertions.assertFalse(domain.isSet(SettingKeys.BLOCK_CHANGE));
+    service().editSystem().editDomain(MockNope.DOMAIN_1).removeProfile(Nope.NOPE_SCOPE, "banana");
+    Assertions.assertFalse(domain.isSet(SettingKeys.RIDE));
+  }
+
+  @Test
+  void isAssigned() {
+    HostSystem system = Nope.instance().system();
+    Assertions.assertFalse(system.isAssigned(SettingKeys.RIDE));
+    service().editSystem().editScope(Nope.NOPE_SCOPE).createProfile("banana");
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile("banana")
+        .editSingleValueSetting(SettingKeys.RIDE.name(), Boolean.class).set(false);
+    Assertions.assertFalse(system.isAssigned(SettingKeys.RIDE));
+    service().editSystem().editDomain(MockNope.DOMAIN_1).addProfile(Nope.NOPE_SCOPE, "banana", 0);
+    service().editSystem().editScope(Nope.NOPE_SCOPE).createScene("pulp-fiction", 0)
+        .addProfile(Nope.NOPE_SCOPE, "banana", 0);
+    Assertions.assertTrue(system.isAssigned(SettingKeys.RIDE));
+    Assertions.assertEquals(2, system.hostsSetting(SettingKeys.RIDE).size());
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile("banana").editSetting(SettingKeys.RIDE.name())
+        .unsetValue();
+    Assertions.assertFalse(system.isAssigned(SettingKeys.RIDE));
+
+    // the global profile counts too
+    service().editSystem().editScope(Nope.NOPE_SCOPE).editProfile(Nope.GLOBAL_ID)
+        .editSingleValueSetting(SettingKeys.RIDE.name(), Boolean.class).set(false);
+    Assertions.assertEquals(Collections.singletonList(system.global()), system.hostsSetting(SettingKeys.RIDE));
+  }
+
   @Test
   void editDomain_generalHostOperations() {
     systemTestEditNonGlobalHost(service().editSystem().editDomain(MockNope.DOMAIN_1));
@@ -24,8 +24,22 @@
 
 package me.pietelite.nope.common.host;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import me.pietelite.nope.common.Nope;
 import me.pietelite.nope.common.math.Cuboid;
 import me.pietelite.nope.common.math.Cylinder;
@@ -34,6 +48,7 @@ import me.pietelite.nope.common.math.Slab;
 import me.pietelite.nope.common.math.Sphere;
 import me.pietelite.nope.common.math.Volume;
 import me.pietelite.nope.common.util.Logger;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -69,12 +84,600 @@ class VolumeTreeTest {
     assert !volumeTree.intersecting(volume4).contains(scene1);
   }
 
+  @Test
+  void intersectingMatchesBruteForce() {
+    Random random = new Random(0);
+    VolumeTree tree = new VolumeTree(true);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      Volume volume;
+      if (i % 50 == 0) {
+        volume = new Slab(domain, (float) random.nextInt(100), random.nextInt(100) + 1f);
+      } else if (i % 10 == 0) {
+        volume = new Sphere(domain, random.nextInt(200) - 100f, (float) random.nextInt(100),
+            random.nextInt(200) - 100f, 20f);
+      } else {
+        volume = randomCuboid(random);
+      }
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, i % 2 == 0);
+    }
+    for (int i = 0; i < 100; i++) {
+      Volume volume = i % 10 == 0 ? volumes.get(i) : randomCuboid(random);
+      Set<Scene> expected = new HashSet<>();
+      for (int j = 0; j < volumes.size(); j++) {
+        if (volumes.get(j) != volume && Geometry.intersects(volumes.get(j), volume)) {
+          expected.add(scenes.get(j));
+        }
+      }
+      Assertions.assertEquals(expected, tree.intersecting(volume));
+    }
+  }
+
   @Test
   void containing() {
     assert volumeTree.containing(1, 1, 1).contains(scene1);
     assert !volumeTree.containing(-1, 1, 1).contains(scene1);
   }
 
+  @Test
+  void containingVolume() {
+    Random random = new Random(0);
+    VolumeTree tree = new VolumeTree(true);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      Volume volume = i % 10 == 0
+          ? new Sphere(domain, random.nextInt(200) - 100f, (float) random.nextInt(100),
+          random.nextInt(200) - 100f, 30f)
+          : randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, true);
+    }
+    for (int i = 0; i < 500; i++) {
+      float x = random.nextInt(200) - 100;
+      float y = random.nextInt(100);
+      float z = random.nextInt(200) - 100;
+      Cuboid cuboid = new Cuboid(domain, x, y, z,
+          x + 1 + random.nextInt(10), y + 1 + random.nextInt(10), z + 1 + random.nextInt(10));
+      Set<Scene> expected = new HashSet<>();
+      for (int j = 0; j < volumes.size(); j++) {
+        if (volumes.get(j).containsCuboid(cuboid.minX(), cuboid.minY(), cuboid.minZ(),
+            cuboid.maxX(), cuboid.maxY(), cuboid.maxZ(), true)) {
+          expected.add(scenes.get(j));
+        }
+      }
+      // A cuboid is its own approximation, so both modes are exact
+      Assertions.assertEquals(expected, tree.containing(cuboid, true));
+      Assertions.assertEquals(expected, tree.containing(cuboid, false));
+
+      Sphere sphere = new Sphere(domain, x, y, z, 1f + random.nextInt(5));
+      Assertions.assertTrue(tree.containing(sphere, true).containsAll(tree.containing(sphere, false)));
+    }
+  }
+
+  @Test
+  void incrementalUpdates() {
+    Random random = new Random(0);
+    VolumeTree tree = new VolumeTree(true);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      Volume volume = randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, true);
+    }
+    for (int i = 0; i < 200; i++) {
+      tree.remove(volumes.remove(0), true);
+      scenes.remove(0);
+    }
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+    tree.construct();
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+  }
+
+  @Test
+  void backgroundConstruction() {
+    Random random = new Random(0);
+    List<Runnable> tasks = new LinkedList<>();
+    VolumeTree tree = new VolumeTree(true);
+    tree.executor(tasks::add);
+    tree.strategy(VolumeTree.Strategy.COST);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      Volume volume = randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+    }
+    // The overlay answers queries before anything is constructed
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+
+    // An interim tree answers queries instead of the large overlay
+    tree.constructAsync();
+    Assertions.assertEquals(1, tasks.size());
+    Assertions.assertTrue(tree.getHeight() > 0);
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+    for (int i = 0; i < 50; i++) {
+      Volume volume = randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "late" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, true);
+      tree.remove(volumes.remove(0), true);
+      scenes.remove(0);
+    }
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+
+    tasks.remove(0).run();
+    Assertions.assertTrue(tree.getHeight() > 0);
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+
+    // Modifications are applied directly to the new tree again
+    int scheduled = tasks.size();
+    tree.remove(volumes.remove(0), true);
+    scenes.remove(0);
+    Assertions.assertEquals(scheduled, tasks.size());
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+  }
+
+  @Test
+  void largeOverlayConstructedAtOnce() {
+    Random random = new Random(0);
+    List<Runnable> tasks = new LinkedList<>();
+    VolumeTree tree = new VolumeTree(true);
+    tree.executor(tasks::add);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      Volume volume = randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+    }
+    Assertions.assertTrue(tree.constructAsync().isDone());
+    Assertions.assertTrue(tasks.isEmpty());
+    Assertions.assertTrue(tree.getHeight() > 0);
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+  }
+
+  @Test
+  void stackedVolumes() {
+    Random random = new Random(0);
+    VolumeTree tree = new VolumeTree(true);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    // Floors of a tower, which all share the same horizontal footprint
+    for (int i = 0; i < 64; i++) {
+      Volume volume = new Cuboid(domain, -20f, i * 2f, -20f, 20f, i * 2f + 2, 20f);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "floor" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+    }
+    tree.construct();
+    // Without splitting along Y, all floors would end up in a single leaf
+    Assertions.assertTrue(tree.getSize() > 16);
+    Assertions.assertTrue(tree.getHeight() < 24);
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+
+    for (int i = 0; i < 16; i++) {
+      tree.remove(volumes.remove(0), true);
+      scenes.remove(0);
+    }
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+  }
+
+  @Test
+  void costStrategy() {
+    Random random = new Random(0);
+    VolumeTree tree = new VolumeTree(true);
+    tree.strategy(VolumeTree.Strategy.COST);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      Volume volume = randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+    }
+    // A couple of volumes spanning nearly everything
+    for (int i = 0; i < 2; i++) {
+      Volume volume = new Cuboid(domain, -100f + i, 0f, -100f, 100f, 100f, 100f - i);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "big" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+    }
+    tree.construct();
+    Assertions.assertTrue(tree.getHeight() > 0);
+    Assertions.assertTrue(tree.getAverageLeafOccupancy() > 0);
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+
+    for (int i = 0; i < 100; i++) {
+      tree.remove(volumes.remove(0), true);
+      scenes.remove(0);
+    }
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+  }
+
+  @Test
+  void parallelConstruction() {
+    Random random = new Random(0);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    VolumeTree sequential = new VolumeTree();
+    sequential.pool(null);
+    VolumeTree parallel = new VolumeTree();
+    parallel.pool(new ForkJoinPool(4));
+    for (int i = 0; i < 3 * VolumeTreeBuilder.FORK_THRESHOLD; i++) {
+      // Spread out enough that the trees stay small
+      float x = random.nextInt(4000) - 2000;
+      float y = random.nextInt(100);
+      float z = random.nextInt(4000) - 2000;
+      Volume volume = new Cuboid(domain, x, y, z,
+          x + 1 + random.nextInt(40), y + 1 + random.nextInt(40), z + 1 + random.nextInt(40));
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      sequential.put(volume, scene, false);
+      parallel.put(volume, scene, false);
+    }
+    for (VolumeTree.Strategy strategy : VolumeTree.Strategy.values()) {
+      sequential.strategy(strategy);
+      sequential.construct();
+      parallel.strategy(strategy);
+      parallel.construct();
+      Assertions.assertEquals(sequential.getHeight(), parallel.getHeight());
+      Assertions.assertEquals(sequential.getSize(), parallel.getSize());
+      assertMatchesBruteForce(parallel, volumes, scenes, random);
+    }
+  }
+
+  @Test
+  void persistence() throws IOException {
+    VolumeTree tree = new VolumeTree(true);
+    tree.strategy(VolumeTree.Strategy.COST);
+    Random random = new Random(0);
+    for (int i = 0; i < 200; i++) {
+      tree.put(randomCuboid(random), new Scene(Nope.NOPE_SCOPE, "scene" + i, 0), false);
+    }
+    tree.construct();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Assertions.assertTrue(tree.writeTo(out));
+
+    // The same volumes, loaded again as new objects
+    VolumeTree loaded = new VolumeTree(true);
+    loaded.strategy(VolumeTree.Strategy.COST);
+    random = new Random(0);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      Volume volume = randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      loaded.put(volume, scene, false);
+    }
+    Assertions.assertTrue(loaded.readFrom(new ByteArrayInputStream(out.toByteArray())));
+    Assertions.assertEquals(tree.getHeight(), loaded.getHeight());
+    Assertions.assertEquals(tree.getSize(), loaded.getSize());
+    assertMatchesBruteForce(loaded, volumes, scenes, random);
+
+    // A saved tree is ignored once any volume changed
+    VolumeTree changed = new VolumeTree(true);
+    changed.strategy(VolumeTree.Strategy.COST);
+    for (int i = 0; i < 200; i++) {
+      Volume volume = i == 0 ? new Cuboid(domain, 0f, 0f, 0f, 1f, 1f, 1f) : volumes.get(i);
+      changed.put(volume, scenes.get(i), false);
+    }
+    Assertions.assertFalse(changed.readFrom(new ByteArrayInputStream(out.toByteArray())));
+
+    // So is a tree constructed with another strategy
+    VolumeTree median = new VolumeTree(true);
+    for (int i = 0; i < 200; i++) {
+      median.put(volumes.get(i), scenes.get(i), false);
+    }
+    Assertions.assertFalse(median.readFrom(new ByteArrayInputStream(out.toByteArray())));
+  }
+
+  @Test
+  void sectionIndex() {
+    Random random = new Random(0);
+    VolumeTree tree = new VolumeTree(true);
+    tree.indexSections(true);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      Volume volume = i % 20 == 0
+          ? new Sphere(domain, random.nextInt(200) - 100f, (float) random.nextInt(100),
+          random.nextInt(200) - 100f, 30f)
+          : randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+    }
+    // The overlay must be indexed too
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+    tree.construct();
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+
+    // Sections which have already been indexed must see modifications
+    for (int i = 0; i < 50; i++) {
+      Volume volume = randomCuboid(random);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "late" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, true);
+      tree.remove(volumes.remove(0), true);
+      scenes.remove(0);
+    }
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+  }
+
+  @Test
+  void cachedPoints() {
+    Random random = new Random(0);
+    CachedVolumeTree tree = new CachedVolumeTree(10000);
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      Volume volume = randomVolume(random, i);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+    }
+    tree.construct();
+    for (int round = 0; round < 2; round++) {
+      Random queries = new Random(1);
+      for (int i = 0; i < 3000; i++) {
+        // Several points in the same block
+        int blockX = queries.nextInt(240) - 120;
+        int blockY = queries.nextInt(140);
+        int blockZ = queries.nextInt(240) - 120;
+        for (int j = 0; j < 4; j++) {
+          float x = blockX + queries.nextFloat();
+          float y = blockY + queries.nextFloat();
+          float z = blockZ + queries.nextFloat();
+          Set<Scene> expected = new HashSet<>();
+          for (int k = 0; k < volumes.size(); k++) {
+            if (volumes.get(k).containsPoint(x, y, z)) {
+              expected.add(scenes.get(k));
+            }
+          }
+          Assertions.assertEquals(expected, tree.containing(x, y, z));
+        }
+      }
+      tree.remove(volumes.remove(0), true);
+      scenes.remove(0);
+    }
+    Assertions.assertTrue(tree.cacheHits() > 0);
+    assertMatchesBruteForce(tree, volumes, scenes, random);
+  }
+
+  @Test
+  void safeBox() {
+    Random random = new Random(0);
+    VolumeTree tree = new VolumeTree();
+    List<Volume> volumes = new ArrayList<>();
+    List<Scene> scenes = new ArrayList<>();
+    for (int i = 0; i < 160; i++) {
+      Volume volume = randomVolume(random, i);
+      Scene scene = new Scene(Nope.NOPE_SCOPE, "scene" + i, 0);
+      volumes.add(volume);
+      scenes.add(scene);
+      tree.put(volume, scene, false);
+      if (i == 120) {
+        // Leave the rest in the overlay of added volumes
+        tree.construct();
+      }
+    }
+    float[] box = new float[6];
+    for (int i = 0; i < 500; i++) {
+      float x = random.nextInt(240) - 120 + random.nextFloat();
+      float y = random.nextInt(140) + random.nextFloat();
+      float z = random.nextInt(240) - 120 + random.nextFloat();
+      Set<Scene> found = tree.containing(x, y, z, box);
+      Assertions.assertEquals(tree.containing(x, y, z), found);
+      Assertions.assertTrue(box[0] <= x && box[1] <= y && box[2] <= z);
+      Assertions.assertTrue(box[3] >= x && box[4] >= y && box[5] >= z);
+      // Every point in the box, including its corners, is in the same scenes
+      for (int j = 0; j < 20; j++) {
+        float pointX = pointWithin(random, box[0], box[3], x);
+        float pointY = pointWithin(random, box[1], box[4], y);
+        float pointZ = pointWithin(random, box[2], box[5], z);
+        Set<Scene> expected = new HashSet<>();
+        for (int k = 0; k < volumes.size(); k++) {
+          if (volumes.get(k).containsPoint(pointX, pointY, pointZ)) {
+            expected.add(scenes.get(k));
+          }
+        }
+        Assertions.assertEquals(expected, found);
+      }
+    }
+  }
+
+  private static float pointWithin(Random random, float min, float max, float center) {
+    min = Math.max(min, center - 300);
+    max = Math.min(max, center + 300);
+    switch (random.nextInt(3)) {
+      case 0:
+        return min;
+      case 1:
+        return max;
+      default:
+        return Math.min(max, min + random.nextFloat() * (max - min));
+    }
+  }
+
+  @Test
+  void selectiveInvalidation() {
+    CachedVolumeTree tree = new CachedVolumeTree(1000);
+    Scene near = new Scene(Nope.NOPE_SCOPE, "near", 0);
+    Scene far = new Scene(Nope.NOPE_SCOPE, "far", 0);
+    tree.put(new Cuboid(domain, 0f, 0f, 0f, 10f, 10f, 10f), near, false);
+    tree.put(new Cuboid(domain, 1000f, 0f, 1000f, 1010f, 10f, 1010f), far, false);
+    tree.construct();
+    Assertions.assertEquals(Collections.singleton(near), tree.containing(5.5f, 5.5f, 5.5f));
+    Assertions.assertEquals(Collections.singleton(far), tree.containing(1005.5f, 5.5f, 1005.5f));
+
+    // An edit elsewhere keeps the far query cached
+    Volume edit = new Cuboid(domain, 2f, 2f, 2f, 8f, 8f, 8f);
+    Scene inner = new Scene(Nope.NOPE_SCOPE, "inner", 0);
+    tree.put(edit, inner, true);
+    long hits = tree.cacheHits();
+    Assertions.assertEquals(Collections.singleton(far), tree.containing(1005.5f, 5.5f, 1005.5f));
+    Assertions.assertEquals(hits + 1, tree.cacheHits());
+    Assertions.assertEquals(new HashSet<>(Arrays.asList(near, inner)), tree.containing(5.5f, 5.5f, 5.5f));
+
+    tree.remove(edit, true);
+    Assertions.assertEquals(Collections.singleton(near), tree.containing(5.5f, 5.5f, 5.5f));
+  }
+
+  @Test
+  void internedSceneSets() {
+    VolumeTree tree = new VolumeTree(true);
+    Scene low = new Scene(Nope.NOPE_SCOPE, "low", 1);
+    Scene high = new Scene(Nope.NOPE_SCOPE, "high", 2);
+    tree.put(new Cuboid(domain, 0f, 0f, 0f, 10f, 10f, 10f), high, true);
+    tree.put(new Cuboid(domain, 0f, 0f, 0f, 20f, 20f, 20f), low, true);
+
+    SceneSet both = tree.containing(1, 1, 1);
+    Assertions.assertSame(both, tree.containing(5, 5, 5));
+    Assertions.assertSame(both, tree.containingBlock(2, 2, 2));
+    Assertions.assertSame(SceneSet.EMPTY, tree.containing(-1, 1, 1));
+    Assertions.assertEquals(new HashSet<>(Arrays.asList(low, high)), both);
+    Assertions.assertEquals(both, new HashSet<>(Arrays.asList(high, low)));
+    Assertions.assertEquals(Arrays.asList(low, high), new ArrayList<>(both));
+
+    // Changing a priority changes the order of the scenes
+    low.priority(3);
+    Assertions.assertEquals(Arrays.asList(high, low), new ArrayList<>(both));
+    Assertions.assertEquals(high, both.sorted()[0]);
+  }
+
+  @Test
+  void distantBlockSections() {
+    VolumeTree tree = new VolumeTree(true);
+    tree.indexSections(true);
+    Scene scene = new Scene(Nope.NOPE_SCOPE, "scene", 0);
+    tree.put(new Cuboid(domain, 0f, 0f, 0f, 16f, 16f, 16f), scene, true);
+    Assertions.assertEquals(Collections.singleton(scene), tree.containingBlock(1, 1, 1));
+    // Sections past the world border and sections sharing a key with the indexed one
+    Assertions.assertEquals(Collections.emptySet(), tree.containingBlock(1 << 25, 1, 1));
+    Assertions.assertEquals(Collections.emptySet(), tree.containingBlock(1 << 30, 1, 1));
+    Assertions.assertEquals(Collections.emptySet(), tree.containingBlock(1, 1 << 20, 1));
+    Assertions.assertEquals(Collections.singleton(scene), tree.containingBlock(1, 1, 1));
+  }
+
+  @Test
+  void concurrentReads() throws InterruptedException {
+    Random random = new Random(0);
+    VolumeTree tree = new CachedVolumeTree(100);
+    Scene scene = new Scene(Nope.NOPE_SCOPE, "scene", 0);
+    List<Volume> volumes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      Volume volume = randomCuboid(random);
+      volumes.add(volume);
+      tree.put(volume, scene, false);
+    }
+    tree.construct();
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread reader = new Thread(() -> {
+      Random readerRandom = new Random(1);
+      try {
+        while (running.get()) {
+          for (Scene found : tree.containing(readerRandom.nextInt(200) - 100,
+              readerRandom.nextInt(100),
+              readerRandom.nextInt(200) - 100)) {
+            Assertions.assertEquals(scene, found);
+          }
+        }
+      } catch (Throwable e) {
+        failure.set(e);
+      }
+    });
+    reader.start();
+    for (int i = 0; i < 500; i++) {
+      Volume volume = randomCuboid(random);
+      volumes.add(volume);
+      tree.put(volume, scene, true);
+      tree.remove(volumes.remove(0), true);
+    }
+    running.set(false);
+    reader.join();
+    Assertions.assertNull(failure.get());
+  }
+
+  private Volume randomVolume(Random random, int kind) {
+    switch (kind % 4) {
+      case 0:
+        return randomCuboid(random);
+      case 1:
+        // Not aligned with blocks
+        float x = random.nextInt(200) - 100 + random.nextFloat();
+        float y = random.nextInt(100) + random.nextFloat();
+        float z = random.nextInt(200) - 100 + random.nextFloat();
+        return new Cuboid(domain, x, y, z, x + 1 + random.nextInt(20), y + 1.5f, z + 2.25f);
+      case 2:
+        return new Sphere(domain, (float) random.nextInt(200) - 100, (float) random.nextInt(100),
+            (float) random.nextInt(200) - 100, (float) random.nextInt(20) + 0.5f);
+      default:
+        float minY = random.nextInt(100);
+        return new Slab(domain, minY, minY + random.nextInt(5) + 1);
+    }
+  }
+
+  private Volume randomCuboid(Random random) {
+    float x = random.nextInt(200) - 100;
+    float y = random.nextInt(100);
+    float z = random.nextInt(200) - 100;
+    return new Cuboid(domain, x, y, z,
+        x + 1 + random.nextInt(40), y + 1 + random.nextInt(40), z + 1 + random.nextInt(40));
+  }
+
+  private void assertMatchesBruteForce(VolumeTree tree, List<Volume> volumes, List<Scene> scenes, Random random) {
+    for (int i = 0; i < 2000; i++) {
+      float x = random.nextInt(240) - 120 + random.nextFloat();
+      float y = random.nextInt(140) + random.nextFloat();
+      float z = random.nextInt(240) - 120 + random.nextFloat();
+      Set<Scene> expected = new HashSet<>();
+      for (int j = 0; j < volumes.size(); j++) {
+        if (volumes.get(j).containsPoint(x, y, z)) {
+          expected.add(scenes.get(j));
+        }
+      }
+      Assertions.assertEquals(expected, tree.containing(x, y, z));
+    }
+    for (int i = 0; i < 500; i++) {
+      int x = random.nextInt(240) - 120;
+      int y = random.nextInt(140);
+      int z = random.nextInt(240) - 120;
+      Set<Scene> expected = new HashSet<>();
+      for (int j = 0; j < volumes.size(); j++) {
+        if (volumes.get(j).containsCuboid(x, y, z, x + 1, y + 1, z + 1, true)) {
+          expected.add(scenes.get(j));
+        }
+      }
+      Assertions.assertEquals(expected, tree.containingBlock(x, y, z));
+    }
+  }
+
   private static class TestNope extends Nope {
 
     public TestNope() {
@@ -90,6 +693,11 @@ class VolumeTreeTest {
     public void scheduleAsyncIntervalTask(Runnable runnable, int interval, TimeUnit intervalUnit) {
       // ignore
     }
+
+    @Override
+    public void scheduleAsyncTask(Runnable runnable) {
+      runnable.run();
+    }
   }
 
   private static class TestLogger implements Logger {
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.setting.sets;
+
+import java.util.HashSet;
+import java.util.Random;
+import me.pietelite.nope.common.api.struct.AltSet;
+import me.pietelite.nope.common.struct.HashAltSet;
+import me.pietelite.nope.common.struct.StringIds;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StringSetTest {
+
+  @Test
+  void ids() {
+    StringSet set = new StringSet(false);
+    set.add("minecraft:zombie");
+    int id = StringIds.find("minecraft:zombie");
+    Assertions.assertTrue(id >= 0);
+    Assertions.assertEquals(id, StringIds.intern("minecraft:zombie"));
+    Assertions.assertEquals("minecraft:zombie", StringIds.string(id));
+    Assertions.assertTrue(set.containsId(id));
+    Assertions.assertFalse(set.contains("minecraft:never-added"));
+    Assertions.assertEquals(-1, StringIds.find("minecraft:never-added"));
+    set.invert();
+    Assertions.assertFalse(set.containsId(id));
+    Assertions.assertTrue(set.contains("minecraft:never-added"));
+    Assertions.assertTrue(set.containsId(-1));
+  }
+
+  @Test
+  void matchesHashAltSet() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 200; trial++) {
+      StringSet strings = new StringSet(random.nextBoolean());
+      AltSet<String> hash = HashAltSet.infinite(strings.isFull());
+      for (int step = 0; step < 20; step++) {
+        StringSet otherStrings = new StringSet(random.nextBoolean());
+        AltSet<String> otherHash = HashAltSet.infinite(otherStrings.isFull());
+        for (int i = 0; i < 10; i++) {
+          String element = "id" + random.nextInt(300);
+          otherStrings.add(element);
+          otherHash.add(element);
+        }
+        switch (random.nextInt(6)) {
+          case 0:
+            strings.addAll(otherStrings);
+            hash.addAll(otherHash);
+            break;
+          case 1:
+            strings.retainAll(otherStrings);
+            hash.retainAll(otherHash);
+            break;
+          case 2:
+            strings.removeAll(otherStrings);
+            hash.removeAll(otherHash);
+            break;
+          case 3:
+            strings.invert();
+            hash.invert();
+            break;
+          case 4:
+            // sets of other types are combined by their strings
+            strings.retainAll(otherHash);
+            hash.retainAll(otherHash);
+            break;
+          default:
+            String element = "id" + random.nextInt(300);
+            strings.remove(element);
+            hash.remove(element);
+        }
+        for (int i = 0; i < 300; i++) {
+          Assertions.assertEquals(hash.contains("id" + i), strings.contains("id" + i));
+        }
+        Assertions.assertEquals(hash.inverted(), strings.inverted());
+        Assertions.assertEquals(hash.set(), new HashSet<>(strings.set()));
+        Assertions.assertEquals(hash.isEmpty(), strings.isEmpty());
+        Assertions.assertEquals(hash.isFull(), strings.isFull());
+        Assertions.assertEquals(hash.containsAll(otherHash), strings.containsAll(otherStrings));
+      }
+    }
+  }
+
+  @Test
+  void equality() {
+    StringSet first = new StringSet(false);
+    StringSet second = new StringSet(false);
+    first.add("a");
+    first.add("b");
+    second.add("b");
+    second.add("a");
+    Assertions.assertEquals(first, second);
+    Assertions.assertEquals(first.hashCode(), second.hashCode());
+    first.remove("b");
+    second.remove("b");
+    second.remove("a");
+    second.add("a");
+    Assertions.assertEquals(first, second);
+    Assertions.assertEquals(first.hashCode(), second.hashCode());
+    Assertions.assertFalse(new StringSet(false).removeAll(first));
+    Assertions.assertTrue(first.removeAll(new StringSet(true)));
+  }
+
+}
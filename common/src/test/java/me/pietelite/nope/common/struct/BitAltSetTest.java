@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.struct;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import me.pietelite.nope.common.api.struct.AltSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BitAltSetTest {
+
+  private static final List<Integer> NUMBERS = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+  @Test
+  void enums() {
+    BitAltSet<AltSetTest.Animal> set = BitAltSet.ofEnum(false, AltSetTest.Animal.class);
+    Assertions.assertTrue(set.isEmpty());
+    Assertions.assertTrue(set.add(AltSetTest.Animal.CAT));
+    Assertions.assertFalse(set.add(AltSetTest.Animal.CAT));
+    Assertions.assertTrue(set.contains(AltSetTest.Animal.CAT));
+    Assertions.assertFalse(set.contains(AltSetTest.Animal.DOG));
+    set.invert();
+    Assertions.assertFalse(set.contains(AltSetTest.Animal.CAT));
+    Assertions.assertTrue(set.contains(AltSetTest.Animal.DOG));
+    Assertions.assertEquals(AltSetTest.Animal.values().length - 1, set.set().size());
+    Assertions.assertFalse(set.inverted());
+    set.add(AltSetTest.Animal.CAT);
+    Assertions.assertTrue(set.isFull());
+    Assertions.assertSame(set.elements(), BitAltSet.ofEnum(true, AltSetTest.Animal.class).elements());
+  }
+
+  @Test
+  void manyElements() {
+    BitAltSet<Integer> set = BitAltSet.of(false, NUMBERS);
+    set.add(3);
+    set.add(70);
+    set.add(99);
+    Assertions.assertTrue(set.contains(70));
+    Assertions.assertFalse(set.contains(71));
+    Assertions.assertFalse(set.contains(1000));
+    Assertions.assertEquals(Arrays.asList(3, 70, 99), new ArrayList<>(set.set()));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> set.add(1000));
+    set.fill();
+    Assertions.assertTrue(set.isFull());
+    Assertions.assertEquals(100, set.set().size());
+    set.invert();
+    Assertions.assertTrue(set.isEmpty());
+  }
+
+  @Test
+  void matchesHashAltSet() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 200; trial++) {
+      BitAltSet<Integer> bits = BitAltSet.of(random.nextBoolean(), NUMBERS);
+      AltSet<Integer> hash = HashAltSet.finite(bits.isFull(), NUMBERS.size());
+      for (int step = 0; step < 20; step++) {
+        BitAltSet<Integer> otherBits = BitAltSet.of(random.nextBoolean(), NUMBERS);
+        AltSet<Integer> otherHash = HashAltSet.finite(otherBits.isFull(), NUMBERS.size());
+        for (int i = 0; i < 30; i++) {
+          int element = random.nextInt(NUMBERS.size());
+          otherBits.remove(element);
+          otherHash.remove(element);
+        }
+        switch (random.nextInt(6)) {
+          case 0:
+            bits.addAll(otherBits);
+            hash.addAll(otherHash);
+            break;
+          case 1:
+            bits.retainAll(otherBits);
+            hash.retainAll(otherHash);
+            break;
+          case 2:
+            bits.removeAll(otherBits);
+            hash.removeAll(otherHash);
+            break;
+          case 3:
+            bits.invert();
+            hash.invert();
+            break;
+          case 4:
+            // sets of other types are combined one element at a time
+            bits.addAll(otherHash);
+            hash.addAll(otherHash);
+            break;
+          default:
+            int element = random.nextInt(NUMBERS.size());
+            bits.add(element);
+            hash.add(element);
+        }
+        for (Integer element : NUMBERS) {
+          Assertions.assertEquals(hash.contains(element), bits.contains(element));
+        }
+        Assertions.assertEquals(hash.isEmpty(), bits.isEmpty());
+        Assertions.assertEquals(hash.isFull(), bits.isFull());
+        Assertions.assertEquals(hash.containsAll(otherHash), bits.containsAll(otherBits));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Pieter Svenson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.pietelite.nope.common.struct;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+  @Test
+  void getAndPut() {
+    TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100);
+    Assertions.assertNull(cache.get(1));
+    cache.put(1, "one", cache.version());
+    Assertions.assertEquals("one", cache.get(1));
+    cache.put(1, "uno", cache.version());
+    Assertions.assertEquals("uno", cache.get(1));
+    Assertions.assertEquals(1, cache.size());
+    Assertions.assertEquals(2, cache.hits());
+    Assertions.assertEquals(1, cache.misses());
+  }
+
+  @Test
+  void bounded() {
+    TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(1000);
+    for (int i = 0; i < 100000; i++) {
+      cache.put(i, i, cache.version());
+      Assertions.assertTrue(cache.size() <= 1000);
+    }
+    Assertions.assertEquals(1000, cache.size());
+    Assertions.assertEquals(100000 - 1000, cache.evictions());
+  }
+
+  @Test
+  void frequentKeysSurviveScans() {
+    TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(1000);
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 500; i++) {
+        if (cache.get(i) == null) {
+          cache.put(i, i, cache.version());
+        }
+      }
+    }
+    // A long run of keys which are only ever requested once
+    for (int i = 1000; i < 100000; i++) {
+      if (cache.get(i) == null) {
+        cache.put(i, i, cache.version());
+      }
+    }
+    int kept = 0;
+    for (int i = 0; i < 500; i++) {
+      if (cache.get(i) != null) {
+        kept++;
+      }
+    }
+    Assertions.assertTrue(kept > 450, "Only " + kept + " frequent keys were kept");
+  }
+
+  @Test
+  void clear() {
+    TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100);
+    long version = cache.version();
+    cache.put(1, "one", version);
+    cache.clear();
+    Assertions.assertNull(cache.get(1));
+    // Computed before the cache was cleared, so it may be outdated
+    cache.put(2, "two", version);
+    Assertions.assertNull(cache.get(2));
+    cache.put(2, "two", cache.version());
+    Assertions.assertEquals("two", cache.get(2));
+  }
+
+  @Test
+  void invalidate() {
+    TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(1000);
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i, cache.version());
+    }
+    cache.invalidate(key -> key % 2 == 0);
+    Assertions.assertEquals(50, cache.size());
+    for (int i = 0; i < 100; i++) {
+      Assertions.assertEquals(i % 2 == 0 ? null : i, cache.get(i));
+    }
+  }
+
+}
@@ -34,6 +34,14 @@ import org.spongepowered.api.world.server.ServerLocation;
  */
 public interface SettingValueLookupFunction<T> {
 
+  /**
+   * Look up the requested value using the cause of the event being handled and a specific location.
+   * The value may be shared with other lookups, so it must not be modified.
+   *
+   * @param location the location of interest
+   * @return the requested value, which must not be modified
+   * @see #lookup(Object, ServerLocation)
+   */
   T lookup(ServerLocation location);
 
   /**
@@ -41,10 +49,11 @@ public interface SettingValueLookupFunction<T> {
    * If the cause is found to be a Sponge ServerPlayer,
    * the setting system will use this player's permission as part of the evaluation process
    * for the resulting value. The location is just the location where you want the setting evaluated.
+   * The value may be shared with other lookups, so it must not be modified.
    *
    * @param cause    the cause of the event
    * @param location the location of interest
-   * @return the requested value
+   * @return the requested value, which must not be modified
    */
   T lookup(Object cause, ServerLocation location);
 
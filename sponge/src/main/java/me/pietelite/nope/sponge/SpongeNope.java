@@ -271,4 +271,12 @@ public class SpongeNope extends Nope {
         .build());
   }
 
+  @Override
+  public void scheduleAsyncTask(Runnable runnable) {
+    Sponge.asyncScheduler().submit(Task.builder()
+        .execute(runnable)
+        .plugin(pluginContainer())
+        .build());
+  }
+
 }
@@ -31,11 +31,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import me.pietelite.nope.common.api.setting.Movement;
 import me.pietelite.nope.common.api.struct.AltSet;
 import me.pietelite.nope.common.host.Host;
+import me.pietelite.nope.common.host.LookupResults;
 import me.pietelite.nope.common.setting.SettingKey;
 import me.pietelite.nope.common.setting.SettingKeys;
 import me.pietelite.nope.common.struct.Location;
@@ -71,6 +73,28 @@ import org.spongepowered.api.world.server.ServerWorld;
  */
 public class MovementListener {
 
+  /**
+   * The keys which may be needed at the location an entity is moving from.
+   */
+  private static final SettingKey<?, ?, ?>[] FIRST_LOCATION_KEYS = {
+      SettingKeys.MOVE,
+      SettingKeys.EXIT,
+      SettingKeys.EXIT_DENY_MESSAGE,
+      SettingKeys.EXIT_DENY_TITLE,
+      SettingKeys.EXIT_DENY_SUBTITLE
+  };
+
+  /**
+   * The keys which may be needed at the location an entity is moving to.
+   */
+  private static final SettingKey<?, ?, ?>[] LAST_LOCATION_KEYS = {
+      SettingKeys.MOVE,
+      SettingKeys.ENTRY,
+      SettingKeys.ENTRY_DENY_MESSAGE,
+      SettingKeys.ENTRY_DENY_TITLE,
+      SettingKeys.ENTRY_DENY_SUBTITLE
+  };
+
   /**
    * Handler for entities moving.
    *
@@ -107,16 +131,24 @@ public class MovementListener {
           event.destinationPosition().z(),
           SpongeUtil.reduceWorld(lastWorld));
 
+      // Find the scenes at each location only once for all the keys.
+      // Most moves stay within the region of the last one, so the entity's region is tracked
+      final UUID userUuid = SpongeUtil.reduceEntity(entity);
+      final LookupResults firstResults = SpongeNope.instance().system()
+          .lookupResults(userUuid, firstLocation, entity.uniqueId(), FIRST_LOCATION_KEYS);
+      final LookupResults lastResults = SpongeNope.instance().system()
+          .lookupResults(userUuid, lastLocation, entity.uniqueId(), LAST_LOCATION_KEYS);
+
       // Check for MOVE setting
-      if (!SpongeUtil.valueFor(SettingKeys.MOVE, entity, firstLocation).contains(movementType)
-          || !SpongeUtil.valueFor(SettingKeys.MOVE, entity, lastLocation).contains(movementType)) {
+      if (!firstResults.get(SettingKeys.MOVE).contains(movementType)
+          || !lastResults.get(SettingKeys.MOVE).contains(movementType)) {
         cancelMovement(event, movementType, firstWorld, entity, SettingKeys.MOVE);
         return;
       }
 
       // Check for EXIT and ENTRY
-      Set<Host> firstHosts = SpongeNope.instance().system().containingHosts(firstLocation);
-      Set<Host> lastHosts = SpongeNope.instance().system().containingHosts(lastLocation);
+      Set<Host> firstHosts = SpongeNope.instance().system().containingHosts(firstLocation, entity.uniqueId());
+      Set<Host> lastHosts = SpongeNope.instance().system().containingHosts(lastLocation, entity.uniqueId());
 
       // Remove shared hosts
       Set<Host> shared = new HashSet<>(firstHosts);
@@ -140,14 +172,14 @@ public class MovementListener {
         // We only want to evaluate EXIT if EXIT is set on a host that we are leaving.
         // Otherwise, the EXIT setting doesn't matter for this movement
         if (firstHosts.stream().anyMatch(host -> host.isSet(SettingKeys.EXIT))) {
-          if (!SpongeUtil.valueFor(SettingKeys.EXIT, entity, firstLocation).contains(movementType)) {
+          if (!firstResults.get(SettingKeys.EXIT).contains(movementType)) {
             movementCancelled = true;
             movementCancelCause = SettingKeys.EXIT;
-            SpongeUtil.valueFor(SettingKeys.EXIT_DENY_MESSAGE, entity, firstLocation)
+            firstResults.get(SettingKeys.EXIT_DENY_MESSAGE)
                 .ifPresent(message -> messages.add(serializer.deserialize(message)));
-            SpongeUtil.valueFor(SettingKeys.EXIT_DENY_TITLE, entity, firstLocation)
+            firstResults.get(SettingKeys.EXIT_DENY_TITLE)
                 .ifPresent(message -> title.set(serializer.deserialize(message)));
-            SpongeUtil.valueFor(SettingKeys.EXIT_DENY_SUBTITLE, entity, firstLocation)
+            firstResults.get(SettingKeys.EXIT_DENY_SUBTITLE)
                 .ifPresent(message -> subTitle.set(serializer.deserialize(message)));
           }
         }
@@ -159,44 +191,44 @@ public class MovementListener {
         // We only want to evaluate EXIT if EXIT is set on a host that we are leaving.
         // Otherwise, the EXIT setting doesn't matter for this movement
         if (lastHosts.stream().anyMatch(host -> host.isSet(SettingKeys.ENTRY))) {
-          if (!SpongeUtil.valueFor(SettingKeys.ENTRY, entity, lastLocation).contains(movementType)) {
+          if (!lastResults.get(SettingKeys.ENTRY).contains(movementType)) {
             movementCancelled = true;
             movementCancelCause = SettingKeys.ENTRY;
-            SpongeUtil.valueFor(SettingKeys.ENTRY_DENY_MESSAGE, entity, lastLocation)
+            lastResults.get(SettingKeys.ENTRY_DENY_MESSAGE)
                 .ifPresent(message -> messages.add(serializer.deserialize(message)));
-            SpongeUtil.valueFor(SettingKeys.ENTRY_DENY_TITLE, entity, lastLocation)
+            lastResults.get(SettingKeys.ENTRY_DENY_TITLE)
                 .ifPresent(message -> title.set(serializer.deserialize(message)));
-            SpongeUtil.valueFor(SettingKeys.ENTRY_DENY_SUBTITLE, entity, lastLocation)
+            lastResults.get(SettingKeys.ENTRY_DENY_SUBTITLE)
                 .ifPresent(message -> subTitle.set(serializer.deserialize(message)));
           }
         }
       }
 
       if (!movementCancelled) {
-        lastHosts.forEach(host -> SettingKeys.GREETING.extractValue(Collections.singletonList(host),
-                entity.uniqueId()).result()
+        lastHosts.forEach(host -> SettingKeys.GREETING.extractResult(Collections.singletonList(host),
+                entity.uniqueId())
             .ifPresent(message -> messages.add(serializer.deserialize(message))));
-        firstHosts.forEach(host -> SettingKeys.FAREWELL.extractValue(Collections.singletonList(host),
-                entity.uniqueId()).result()
+        firstHosts.forEach(host -> SettingKeys.FAREWELL.extractResult(Collections.singletonList(host),
+                entity.uniqueId())
             .ifPresent(message -> messages.add(serializer.deserialize(message))));
         Optional<Host> maxPriorityEntering = lastHosts.stream().max(Comparator.comparing(Host::priority));
         Optional<Host> maxPriorityExiting = firstHosts.stream().max(Comparator.comparing(Host::priority));
         if (maxPriorityEntering.isPresent() || maxPriorityExiting.isPresent()) {
           Optional<Component> maxPriorityEnteringTitle = maxPriorityEntering.flatMap(host ->
-                  SettingKeys.GREETING_TITLE.extractValue(Collections.singletonList(host),
-                      entity.uniqueId()).result())
+                  SettingKeys.GREETING_TITLE.extractResult(Collections.singletonList(host),
+                      entity.uniqueId()))
               .map(serializer::deserialize);
           Optional<Component> maxPriorityEnteringSubtitle = maxPriorityEntering.flatMap(host ->
-                  SettingKeys.GREETING_SUBTITLE.extractValue(Collections.singletonList(host),
-                      entity.uniqueId()).result())
+                  SettingKeys.GREETING_SUBTITLE.extractResult(Collections.singletonList(host),
+                      entity.uniqueId()))
               .map(serializer::deserialize);
           Optional<Component> maxPriorityExitingTitle = maxPriorityExiting.flatMap(host ->
-                  SettingKeys.FAREWELL_TITLE.extractValue(Collections.singletonList(host),
-                      entity.uniqueId()).result())
+                  SettingKeys.FAREWELL_TITLE.extractResult(Collections.singletonList(host),
+                      entity.uniqueId()))
               .map(serializer::deserialize);
           Optional<Component> maxPriorityExitingSubtitle = maxPriorityExiting.flatMap(host ->
-                  SettingKeys.FAREWELL_SUBTITLE.extractValue(Collections.singletonList(host),
-                      entity.uniqueId()).result())
+                  SettingKeys.FAREWELL_SUBTITLE.extractResult(Collections.singletonList(host),
+                      entity.uniqueId()))
               .map(serializer::deserialize);
           boolean enteringPrioritized = !maxPriorityExiting.isPresent()
               || (maxPriorityEntering.isPresent()
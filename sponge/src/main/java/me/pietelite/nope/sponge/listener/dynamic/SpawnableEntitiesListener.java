@@ -25,6 +25,8 @@
 package me.pietelite.nope.sponge.listener.dynamic;
 
 import me.pietelite.nope.common.api.struct.AltSet;
+import me.pietelite.nope.common.setting.sets.StringSet;
+import me.pietelite.nope.common.struct.StringIds;
 import me.pietelite.nope.sponge.api.setting.SettingEventContext;
 import me.pietelite.nope.sponge.api.setting.SettingEventListener;
 import me.pietelite.nope.sponge.api.setting.SettingEventReport;
@@ -52,14 +54,16 @@ public class SpawnableEntitiesListener implements SettingEventListener<AltSet<St
     ServerLocation location;
     AltSet<String> set;
     ResourceKey entityKey;
+    int entityId;
     for (Entity entity : context.event().entities()) {
       location = entity.serverLocation();
       set = context.lookup(player, location);
       entityKey = EntityTypes.registry().valueKey(entity.type());
+      entityId = StringIds.find(entityKey.value());
       SettingEventReport report = SettingEventReport.restricted()
           .target(entityKey.formatted())
           .build();
-      if (!set.contains(entityKey.value())) {
+      if (!contains(set, entityId, entityKey.value())) {
         context.event().setCancelled(true);
         context.report(report);
         return;
@@ -69,7 +73,7 @@ public class SpawnableEntitiesListener implements SettingEventListener<AltSet<St
       //  entity type, make sure that the player can be spawning from their location.
       if (player != null) {
         set = context.lookup(player, player.serverLocation());
-        if (!set.contains(entityKey.value())) {
+        if (!contains(set, entityId, entityKey.value())) {
           context.event().setCancelled(true);
           context.report(report);
           return;
@@ -77,4 +81,12 @@ public class SpawnableEntitiesListener implements SettingEventListener<AltSet<St
       }
     }
   }
-}
\ No newline at end of file
+
+  private static boolean contains(AltSet<String> set, int id, String element) {
+    if (set instanceof StringSet) {
+      // the id was already looked up once for this entity
+      return ((StringSet) set).containsId(id);
+    }
+    return set.contains(element);
+  }
+}
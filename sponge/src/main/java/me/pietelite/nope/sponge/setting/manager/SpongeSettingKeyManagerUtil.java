@@ -28,6 +28,7 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import me.pietelite.nope.common.setting.SettingKey;
 import me.pietelite.nope.common.setting.SettingKeyManagers;
+import me.pietelite.nope.common.struct.StringIds;
 import me.pietelite.nope.sponge.util.Groups;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.block.BlockType;
@@ -52,6 +53,10 @@ public final class SpongeSettingKeyManagerUtil {
    * to make the best use of Sponge's platform.
    */
   public static void updateSettingKeyManagers() {
+    // give the registered ids the smallest ids, so sets of them stay small
+    EntityTypes.registry().streamEntries().forEach(entity -> StringIds.intern(entity.key().value()));
+    BlockTypes.registry().streamEntries().forEach(block -> StringIds.intern(block.key().value()));
+
     SettingKeyManagers.POLY_ENTITY_KEY_MANAGER.elementOptions(
         () -> EntityTypes.registry().streamEntries()
             .collect(Collectors.<RegistryEntry<EntityType<? extends Entity>>, String, Object>
@@ -26,6 +26,7 @@ package me.pietelite.nope.sponge.storage.configurate;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -35,6 +36,8 @@ import java.util.stream.Collectors;
 import me.pietelite.nope.common.Nope;
 import me.pietelite.nope.common.host.Domain;
 import me.pietelite.nope.common.host.HostSystem;
+import me.pietelite.nope.common.host.VolumeTree;
+import me.pietelite.nope.common.setting.SettingKey;
 import me.pietelite.nope.common.setting.SettingKeys;
 import me.pietelite.nope.common.storage.DataHandler;
 import me.pietelite.nope.common.storage.DomainDataHandler;
@@ -122,11 +125,19 @@ public abstract class ConfigurateDataHandler implements DataHandler {
         .collect(Collectors.toList());
     domains.forEach(domain -> {
       domainDataHandler.load(domain);
+      domain.volumes().strategy(domainValue(system, domain, SettingKeys.COST_MODEL_INDEXING)
+          ? VolumeTree.Strategy.COST
+          : VolumeTree.Strategy.MEDIAN);
+      domain.volumes().indexSections(domainValue(system, domain, SettingKeys.SECTION_INDEXING));
       system.domains().put(domain.name(), domain);
     });
     system.loadScenes(sceneConfigurateDataHandler.load());
   }
 
+  private static <T> T domainValue(HostSystem system, Domain domain, SettingKey<T, ?, ?> key) {
+    return key.extractResult(Arrays.asList(system.global(), domain), null);
+  }
+
   protected static Collection<Path> persistentComponentPaths(Path rootPath, String componentsName,
                                                       String fileSuffix) {
     File[] scopeFolders = rootPath.toFile().listFiles();
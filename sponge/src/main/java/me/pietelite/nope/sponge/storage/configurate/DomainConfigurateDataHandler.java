@@ -24,8 +24,17 @@
 
 package me.pietelite.nope.sponge.storage.configurate;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Objects;
 import java.util.function.Function;
+import me.pietelite.nope.common.Nope;
 import me.pietelite.nope.common.host.Domain;
 import me.pietelite.nope.common.host.HostedProfile;
 import me.pietelite.nope.common.storage.DomainDataHandler;
@@ -40,15 +49,19 @@ import org.spongepowered.configurate.loader.ConfigurationLoader;
 public class DomainConfigurateDataHandler implements DomainDataHandler {
 
   private final Function<String, ConfigurationLoader<CommentedConfigurationNode>> loader;
+  private final Function<String, Path> volumeTreePath;
 
   /**
    * Generic constructor.
    *
    * @param loader              the configuration loader
+   * @param volumeTreePath      the path of the file in which to save a domain's volume tree
    */
   public DomainConfigurateDataHandler(Function<String,
-      ConfigurationLoader<CommentedConfigurationNode>> loader) {
+      ConfigurationLoader<CommentedConfigurationNode>> loader,
+                                      Function<String, Path> volumeTreePath) {
     this.loader = loader;
+    this.volumeTreePath = volumeTreePath;
   }
 
   @Override
@@ -75,4 +88,40 @@ public class DomainConfigurateDataHandler implements DomainDataHandler {
     }
   }
 
+  @Override
+  public void saveVolumes(@NotNull Domain domain) {
+    Path path = volumeTreePath.apply(domain.name());
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      boolean written;
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+        written = domain.volumes().writeTo(out);
+      }
+      if (written) {
+        // Replace the old file all at once, so it is never left half written
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } else {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      Nope.instance().logger().warn("Could not save the volumes of domain " + domain.name()
+          + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  public boolean loadVolumes(@NotNull Domain domain) {
+    Path path = volumeTreePath.apply(domain.name());
+    if (!Files.exists(path)) {
+      return false;
+    }
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+      return domain.volumes().readFrom(in);
+    } catch (IOException e) {
+      Nope.instance().logger().warn("Could not load the volumes of domain " + domain.name()
+          + ": " + e.getMessage());
+      return false;
+    }
+  }
+
 }
@@ -53,7 +53,8 @@ public class HoconDataHandler extends ConfigurateDataHandler {
    */
   public HoconDataHandler(Path path, SettingValueConfigSerializerRegistrar serializerRegistrar) {
     super(new GlobalHoconConfig(path, serializerRegistrar),
-        new DomainConfigurateDataHandler((name) -> hoconLoader(path.resolve(name + ".conf"))),
+        new DomainConfigurateDataHandler((name) -> hoconLoader(path.resolve(name + ".conf")),
+            (name) -> path.resolve(name + ".tree")),
         new SceneConfigurateDataHandler(
             (scope, name) -> hoconLoader(path.resolve("scenes").resolve(name + ".conf")),
             (scope, name) -> path.resolve("scenes").resolve(name + ".conf"),
@@ -48,7 +48,8 @@ public class YamlDataHandler extends ConfigurateDataHandler {
 
   public YamlDataHandler(Path path, SettingValueConfigSerializerRegistrar serializerRegistrar) {
     super(new YamlGlobalConfig(path, serializerRegistrar),
-        new DomainConfigurateDataHandler((name) -> yamlLoader(path.resolve(name + ".yml"))),
+        new DomainConfigurateDataHandler((name) -> yamlLoader(path.resolve(name + ".yml")),
+            (name) -> path.resolve(name + ".tree")),
         new SceneConfigurateDataHandler(
             (scope, name) -> yamlLoader(path.resolve("scenes").resolve(name + ".yml")),
             (scope, name) -> path.resolve("scenes").resolve(name + ".yml"),
@@ -135,27 +135,27 @@ public final class SpongeUtil {
    * @param key    a key
    * @param entity an entity, which really is only used if it is a player
    * @param <T>    the data type
-   * @return the evaluated data
+   * @return the evaluated data, which must not be modified
    */
   public static <T> T valueFor(SettingKey<T, ?, ?> key, Entity entity) {
-    return SpongeNope.instance().system().lookup(key,
+    return SpongeNope.instance().system().lookupResult(key,
         reduceEntity(entity),
-        reduceLocation(entity.serverLocation())).result();
+        reduceLocation(entity.serverLocation()));
   }
 
   /**
-   * An alias for {@link HostSystem#lookup(SettingKey, UUID, Location)}.
+   * An alias for {@link HostSystem#lookupResult(SettingKey, UUID, Location)}.
    *
    * @param key      a key
    * @param cause    the (root) cause of the event causing this lookup
    * @param location the location at which to evaluate
    * @param <T>      the data type
-   * @return the evaluated data
+   * @return the evaluated data, which must not be modified
    */
   public static <T> T valueFor(SettingKey<T, ?, ?> key, Object cause, ServerLocation location) {
-    return SpongeNope.instance().system().lookup(key,
+    return SpongeNope.instance().system().lookupResult(key,
         reduceCause(cause),
-        reduceLocation(location)).result();
+        reduceLocation(location));
   }
 
   /**
@@ -165,14 +165,14 @@ public final class SpongeUtil {
    * @param cause    the cause
    * @param location the location
    * @param <T>      the data type
-   * @return the evaluated data
+   * @return the evaluated data, which must not be modified
    */
   public static <T> T valueFor(SettingKey<T, ?, ?> key, Object cause, Location location) {
-    return SpongeNope.instance().system().lookup(key, reduceCause(cause), location).result();
+    return SpongeNope.instance().system().lookupResult(key, reduceCause(cause), location);
   }
 
   public static <T> T valueFor(SettingKey<T, ?, ?> key, ServerLocation location) {
-    return SpongeNope.instance().system().lookupAnonymous(key, reduceLocation(location)).result();
+    return SpongeNope.instance().system().lookupResult(key, null, reduceLocation(location));
   }
 
   /**